@@ -0,0 +1,86 @@
+package scott.spring.webapisandbox.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encoding and decoding {@link EmployeeResponse} lists as JSON, CBOR and Smile, the formats
+ * GET /api/employee can negotiate. The encoded size of each list is printed once per trial, since
+ * payload size matters as much as CPU time to bulk consumers.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EmployeeFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"1000", "100000"})
+    private int employeeCount;
+
+    private ObjectMapper _objectMapper;
+    private JavaType _listType;
+    private List<EmployeeResponse> _employees;
+    private byte[] _encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        _objectMapper = Jackson2ObjectMapperBuilder.json()
+                .factory(factory(format))
+                .modulesToInstall(new ParameterNamesModule())
+                .build();
+        _listType = _objectMapper.getTypeFactory().constructCollectionType(List.class, EmployeeResponse.class);
+
+        _employees = new ArrayList<>(employeeCount);
+        for (int i = 1; i <= employeeCount; i++) {
+            _employees.add(new EmployeeResponse(i, "First" + i, "Last" + i, i % 5));
+        }
+
+        _encoded = _objectMapper.writeValueAsBytes(_employees);
+        System.out.printf("%n%s, %d employees: %d bytes (%.1f bytes/employee)%n",
+                format, employeeCount, _encoded.length, (double) _encoded.length / employeeCount);
+    }
+
+    @Benchmark
+    public byte[] encodeList() throws IOException {
+        return _objectMapper.writeValueAsBytes(_employees);
+    }
+
+    @Benchmark
+    public List<EmployeeResponse> decodeList() throws IOException {
+        return _objectMapper.readValue(_encoded, _listType);
+    }
+
+    private static JsonFactory factory(String format) {
+        switch (format) {
+            case "json":
+                return new JsonFactory();
+            case "cbor":
+                return new CBORFactory();
+            case "smile":
+                return new SmileFactory();
+            default:
+                throw new IllegalArgumentException("Unknown format " + format);
+        }
+    }
+}
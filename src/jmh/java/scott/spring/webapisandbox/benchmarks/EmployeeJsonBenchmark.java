@@ -0,0 +1,58 @@
+package scott.spring.webapisandbox.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Jackson serialization of {@link EmployeeResponse} lists, using an ObjectMapper configured the
+ * same way Spring MVC configures the one it writes responses with.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EmployeeJsonBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int employeeCount;
+
+    private ObjectWriter _writer;
+    private EmployeeResponse _employee;
+    private List<EmployeeResponse> _employees;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        _writer = objectMapper.writer();
+
+        _employee = new EmployeeResponse(1, "First", "Last", 0);
+        _employees = new ArrayList<>(employeeCount);
+        for (int i = 1; i <= employeeCount; i++) {
+            _employees.add(new EmployeeResponse(i, "First" + i, "Last" + i, 0));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeOne() throws JsonProcessingException {
+        return _writer.writeValueAsBytes(_employee);
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws JsonProcessingException {
+        return _writer.writeValueAsBytes(_employees);
+    }
+}
@@ -0,0 +1,56 @@
+package scott.spring.webapisandbox.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import scott.spring.webapisandbox.models.Employee;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of turning entities into response models: a single {@link EmployeeResponse#FromEmployee}
+ * call, and the stream/map/cast/collect pipeline that getAll runs over the whole list.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EmployeeMappingBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int employeeCount;
+
+    private Employee _employee;
+    private List<Employee> _employees;
+
+    @Setup
+    public void setUp() {
+        _employee = new Employee(1, "First", "Last");
+        _employees = new ArrayList<>(employeeCount);
+        for (int i = 1; i <= employeeCount; i++) {
+            _employees.add(new Employee(i, "First" + i, "Last" + i));
+        }
+    }
+
+    @Benchmark
+    public EmployeeResponse fromEmployee() {
+        return EmployeeResponse.FromEmployee(_employee);
+    }
+
+    @Benchmark
+    public List<EmployeeResponse> getAllPipeline() {
+        return _employees
+            .stream()
+            .map(EmployeeResponse::FromEmployee)
+            .map(EmployeeResponse.class::cast)
+            .collect(Collectors.toList());
+    }
+}
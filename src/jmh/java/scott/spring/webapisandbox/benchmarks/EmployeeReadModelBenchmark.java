@@ -0,0 +1,133 @@
+package scott.spring.webapisandbox.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import scott.spring.webapisandbox.Application;
+import scott.spring.webapisandbox.models.Employee;
+import scott.spring.webapisandbox.repositories.EmployeeRepository;
+import scott.spring.webapisandbox.services.EmployeeReadModel;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link EmployeeReadModel} reads against the DTO projection queries they replace, over the same
+ * employees in the in-memory H2 database. The setup also prints the read model's footprint for a
+ * million employees (with names drawn from pools, so they repeat as real ones do) next to the heap
+ * taken by the same employees as a map of response objects.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EmployeeReadModelBenchmark {
+
+    private static final int SEED_COUNT = 10_000;
+    private static final int FOOTPRINT_COUNT = 1_000_000;
+
+    private ConfigurableApplicationContext _context;
+    private EmployeeRepository _employeeRepository;
+    private EmployeeReadModel _readModel;
+    private int _minId;
+    private int _maxId;
+
+    @Setup
+    public void setUp() {
+        printFootprint();
+
+        _context = new SpringApplicationBuilder(Application.class)
+            .web(WebApplicationType.NONE)
+            .run("--logging.level.root=WARN", "--app.read-model.enabled=true");
+        _employeeRepository = _context.getBean(EmployeeRepository.class);
+        _readModel = _context.getBean(EmployeeReadModel.class);
+
+        _employeeRepository.deleteAllInBatch();
+        _minId = Integer.MAX_VALUE;
+        _maxId = Integer.MIN_VALUE;
+        for (int i = 0; i < SEED_COUNT; i++) {
+            Employee employee = _employeeRepository.save(new Employee(null, "First" + i, "Last" + i));
+            _minId = Math.min(_minId, employee.getId());
+            _maxId = Math.max(_maxId, employee.getId());
+        }
+        _readModel.load();
+    }
+
+    @TearDown
+    public void tearDown() {
+        _context.close();
+    }
+
+    @Benchmark
+    public EmployeeResponse readModelGetById() {
+        return _readModel.getById(ThreadLocalRandom.current().nextInt(_minId, _maxId + 1));
+    }
+
+    @Benchmark
+    public Optional<EmployeeResponse> findResponseById() {
+        return _employeeRepository.findResponseById(ThreadLocalRandom.current().nextInt(_minId, _maxId + 1));
+    }
+
+    @Benchmark
+    public List<EmployeeResponse> readModelGetAll() {
+        return _readModel.getAll();
+    }
+
+    @Benchmark
+    public List<EmployeeResponse> findAllResponses() {
+        return _employeeRepository.findAllResponses();
+    }
+
+    private static void printFootprint() {
+        long before = usedHeap();
+        EmployeeReadModel readModel = new EmployeeReadModel(null, new SimpleMeterRegistry(), true);
+        List<EmployeeResponse> page = new ArrayList<>(4096);
+        for (int id = 1; id <= FOOTPRINT_COUNT; id++) {
+            page.add(employee(id));
+            if (page.size() == 4096 || id == FOOTPRINT_COUNT) {
+                readModel.putAll(page);
+                page.clear();
+            }
+        }
+        long readModelHeap = usedHeap() - before;
+
+        before = usedHeap();
+        Map<Integer, EmployeeResponse> responses = new HashMap<>();
+        for (int id = 1; id <= FOOTPRINT_COUNT; id++) {
+            responses.put(id, employee(id));
+        }
+        long responsesHeap = usedHeap() - before;
+
+        System.out.printf("%nRead model, %d employees: %d bytes estimated, %d bytes of heap (%.1f bytes/employee)%n",
+            readModel.size(), readModel.estimateBytes(), readModelHeap, (double) readModelHeap / FOOTPRINT_COUNT);
+        System.out.printf("Map of responses, %d employees: %d bytes of heap (%.1f bytes/employee)%n",
+            responses.size(), responsesHeap, (double) responsesHeap / FOOTPRINT_COUNT);
+    }
+
+    // New strings each time, as a query result would have.
+    private static EmployeeResponse employee(int id) {
+        return new EmployeeResponse(id, new String("First" + (id % 5_000)), new String("Last" + (id * 31 % 20_000)), id % 3);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
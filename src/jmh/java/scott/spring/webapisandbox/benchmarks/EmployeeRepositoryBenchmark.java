@@ -0,0 +1,107 @@
+package scott.spring.webapisandbox.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import scott.spring.webapisandbox.Application;
+import scott.spring.webapisandbox.models.Employee;
+import scott.spring.webapisandbox.repositories.EmployeeRepository;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * {@link EmployeeRepository} save and reads against the in-memory H2 database, with the
+ * application context booted (without the web server) so JPA is configured as it is at runtime.
+ * The *Mapped benchmarks load managed entities and map them, the *Response(s) ones use the DTO
+ * projection queries, so the two read paths can be compared directly.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EmployeeRepositoryBenchmark {
+
+    private static final int SEED_COUNT = 10_000;
+
+    private ConfigurableApplicationContext _context;
+    private EmployeeRepository _employeeRepository;
+    private int _minId;
+    private int _maxId;
+
+    @Setup
+    public void setUp() {
+        _context = new SpringApplicationBuilder(Application.class)
+            .web(WebApplicationType.NONE)
+            .run("--logging.level.root=WARN");
+        _employeeRepository = _context.getBean(EmployeeRepository.class);
+
+        _employeeRepository.deleteAllInBatch();
+        _minId = Integer.MAX_VALUE;
+        _maxId = Integer.MIN_VALUE;
+        for (int i = 0; i < SEED_COUNT; i++) {
+            Employee employee = _employeeRepository.save(new Employee(null, "First" + i, "Last" + i));
+            _minId = Math.min(_minId, employee.getId());
+            _maxId = Math.max(_maxId, employee.getId());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        _context.close();
+    }
+
+    @Benchmark
+    public Optional<Employee> findById() {
+        int id = ThreadLocalRandom.current().nextInt(_minId, _maxId + 1);
+        return _employeeRepository.findById(id);
+    }
+
+    @Benchmark
+    public Optional<EmployeeResponse> findByIdMapped() {
+        int id = ThreadLocalRandom.current().nextInt(_minId, _maxId + 1);
+        return _employeeRepository.findById(id).map(EmployeeResponse::FromEmployee);
+    }
+
+    @Benchmark
+    public Optional<EmployeeResponse> findResponseById() {
+        int id = ThreadLocalRandom.current().nextInt(_minId, _maxId + 1);
+        return _employeeRepository.findResponseById(id);
+    }
+
+    @Benchmark
+    public List<EmployeeResponse> findAllMapped() {
+        return _employeeRepository.findAll()
+            .stream()
+            .map(EmployeeResponse::FromEmployee)
+            .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<EmployeeResponse> findAllResponses() {
+        return _employeeRepository.findAllResponses();
+    }
+
+    @Benchmark
+    public List<EmployeeResponse> findResponsesByLastNamePrefix() {
+        String pattern = "last" + ThreadLocalRandom.current().nextInt(100) + "%";
+        return _employeeRepository.findResponsesByLastNamePrefix(pattern, PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public Employee save() {
+        return _employeeRepository.save(new Employee(null, "First", "Last"));
+    }
+}
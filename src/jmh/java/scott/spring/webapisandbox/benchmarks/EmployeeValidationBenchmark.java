@@ -0,0 +1,56 @@
+package scott.spring.webapisandbox.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeCreateRequest;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import java.util.Set;
+
+/**
+ * Bean validation of {@link EmployeeCreateRequest}, as done for every @Valid request body.
+ * The invalid case is measured separately because building violations is the expensive part.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EmployeeValidationBenchmark {
+
+    private ValidatorFactory _validatorFactory;
+    private Validator _validator;
+    private EmployeeCreateRequest _validRequest;
+    private EmployeeCreateRequest _invalidRequest;
+
+    @Setup
+    public void setUp() {
+        _validatorFactory = Validation.buildDefaultValidatorFactory();
+        _validator = _validatorFactory.getValidator();
+        _validRequest = new EmployeeCreateRequest("First", "Last");
+        _invalidRequest = new EmployeeCreateRequest("First", " ");
+    }
+
+    @TearDown
+    public void tearDown() {
+        _validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<EmployeeCreateRequest>> validateValid() {
+        return _validator.validate(_validRequest);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<EmployeeCreateRequest>> validateInvalid() {
+        return _validator.validate(_invalidRequest);
+    }
+}
@@ -0,0 +1,287 @@
+package scott.spring.webapisandbox.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import scott.spring.webapisandbox.Application;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Boots the application on a random port against the in-memory H2 database, seeds it with
+ * employees and drives a weighted mix of EmployeeController calls, then prints throughput and
+ * latency percentiles per operation.
+ *
+ * Latencies are corrected for coordinated omission. In rate mode every request has an intended
+ * start time on a fixed schedule and latency is measured from that time, so a stall shows up as
+ * latency for every request that should have been sent during it. In concurrency mode there is
+ * no schedule, so HdrHistogram back-fills missing samples using the mean latency seen during
+ * warm-up as the expected interval.
+ */
+public class LoadTest {
+
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    private final LoadTestOptions _options;
+    private final ObjectMapper _objectMapper = new ObjectMapper();
+    private final HttpClient _httpClient = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    private final Operation[] _weightedOperations;
+    private String _baseUri;
+    private int[] _employeeIds;
+
+    public LoadTest(LoadTestOptions options) {
+        this._options = options;
+
+        List<Operation> weighted = new ArrayList<>();
+        options.getMix().forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                weighted.add(operation);
+            }
+        });
+        this._weightedOperations = weighted.toArray(new Operation[0]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+
+        List<String> applicationArgs = new ArrayList<>(List.of("--server.port=0", "--logging.level.root=WARN"));
+        applicationArgs.addAll(options.getApplicationArgs());
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .run(applicationArgs.toArray(new String[0]))) {
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            new LoadTest(options).run("http://localhost:" + port);
+        }
+    }
+
+    public void run(String baseUri) throws Exception {
+        _baseUri = baseUri;
+
+        System.out.println("Load test: " + _options);
+        seed();
+
+        System.out.println("Warming up for " + _options.getWarmupSeconds() + "s...");
+        Map<Operation, Recorder> warmup = runPhase(_options.getWarmupSeconds(), 0);
+        // Rate mode measures from the schedule, so back-filling as well would count stalls twice.
+        long expectedIntervalNanos = _options.getMode() == LoadTestOptions.Mode.RATE ? 0 : (long) combine(warmup).getMean();
+
+        System.out.println("Measuring for " + _options.getDurationSeconds() + "s...");
+        long start = System.nanoTime();
+        Map<Operation, Recorder> measured = runPhase(_options.getDurationSeconds(), expectedIntervalNanos);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        report(measured, elapsedSeconds);
+    }
+
+    private void seed() throws IOException, InterruptedException {
+        System.out.println("Seeding " + _options.getEmployees() + " employees...");
+        _employeeIds = new int[_options.getEmployees()];
+
+        int seeded = 0;
+        while (seeded < _employeeIds.length) {
+            int count = Math.min(SEED_BATCH_SIZE, _employeeIds.length - seeded);
+            StringBuilder body = new StringBuilder("[");
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    body.append(',');
+                }
+                body.append(employeeJson("Seed" + (seeded + i), "Employee"));
+            }
+            body.append(']');
+
+            HttpResponse<String> response = _httpClient.send(jsonRequest("/api/employee/batch")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding failed with status " + response.statusCode());
+            }
+
+            for (JsonNode created : _objectMapper.readTree(response.body()).get("created")) {
+                _employeeIds[seeded++] = created.get("id").asInt();
+            }
+        }
+    }
+
+    /**
+     * Runs every worker for the given number of seconds. A zero expected interval means no
+     * coordinated-omission back-fill (used for warm-up, and always in rate mode where the
+     * schedule already accounts for it).
+     */
+    private Map<Operation, Recorder> runPhase(int seconds, long expectedIntervalNanos) throws InterruptedException {
+        Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(3));
+        }
+
+        int workers = _options.getConcurrency();
+        long phaseStart = System.nanoTime();
+        long phaseEnd = phaseStart + TimeUnit.SECONDS.toNanos(seconds);
+        boolean scheduled = _options.getMode() == LoadTestOptions.Mode.RATE;
+        long perRequestNanos = scheduled ? TimeUnit.SECONDS.toNanos(1) / _options.getRate() : 0;
+        AtomicLong errors = new AtomicLong();
+
+        List<Thread> threads = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            // In rate mode worker w owns every workers-th slot of the global schedule.
+            long firstSlot = phaseStart + w * perRequestNanos;
+            long workerInterval = perRequestNanos * workers;
+
+            Thread thread = new Thread(() -> {
+                for (long n = 0; ; n++) {
+                    long intendedStart = scheduled ? firstSlot + n * workerInterval : System.nanoTime();
+                    if (intendedStart >= phaseEnd) {
+                        return;
+                    }
+                    if (scheduled) {
+                        waitUntil(intendedStart);
+                    }
+
+                    Operation operation = nextOperation();
+                    if (!send(operation)) {
+                        errors.incrementAndGet();
+                    }
+
+                    long latency = System.nanoTime() - intendedStart;
+                    if (expectedIntervalNanos > 0) {
+                        recorders.get(operation).recordValueWithExpectedInterval(latency, expectedIntervalNanos);
+                    } else {
+                        recorders.get(operation).recordValue(latency);
+                    }
+                }
+            }, "loadtest-worker-" + w);
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        if (errors.get() > 0) {
+            System.out.println("  " + errors.get() + " requests failed or returned an error status");
+        }
+        return recorders;
+    }
+
+    private Operation nextOperation() {
+        return _weightedOperations[ThreadLocalRandom.current().nextInt(_weightedOperations.length)];
+    }
+
+    private int randomEmployeeId() {
+        return _employeeIds[ThreadLocalRandom.current().nextInt(_employeeIds.length)];
+    }
+
+    private boolean send(Operation operation) {
+        HttpRequest request;
+        switch (operation) {
+            case GET_ALL:
+                request = jsonRequest("/api/employee").GET().build();
+                break;
+            case GET_BY_ID:
+                request = jsonRequest("/api/employee/" + randomEmployeeId()).GET().build();
+                break;
+            case CREATE:
+                request = jsonRequest("/api/employee")
+                    .POST(HttpRequest.BodyPublishers.ofString(employeeJson("Load", "Created")))
+                    .build();
+                break;
+            case UPDATE:
+                request = jsonRequest("/api/employee/" + randomEmployeeId())
+                    .PUT(HttpRequest.BodyPublishers.ofString(employeeJson("Load", "Updated")))
+                    .build();
+                break;
+            default:
+                throw new IllegalStateException("Unexpected operation " + operation);
+        }
+
+        try {
+            HttpResponse<Void> response = _httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() < 400;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private HttpRequest.Builder jsonRequest(String path) {
+        return HttpRequest.newBuilder(URI.create(_baseUri + path))
+            .timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/json")
+            .header("Accept", "application/json");
+    }
+
+    private static String employeeJson(String firstName, String lastName) {
+        return "{\"firstName\":\"" + firstName + "\",\"lastName\":\"" + lastName + "\"}";
+    }
+
+    private static void waitUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static Histogram combine(Map<Operation, Recorder> recorders) {
+        Histogram total = new Histogram(3);
+        recorders.values().forEach(recorder -> total.add(recorder.getIntervalHistogram()));
+        return total;
+    }
+
+    private void report(Map<Operation, Recorder> recorders, double elapsedSeconds) {
+        Histogram total = new Histogram(3);
+
+        System.out.println();
+        System.out.printf("%-10s %10s %10s %10s %10s %10s %10s %10s%n",
+            "operation", "count", "ops/s", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+
+        for (Map.Entry<Operation, Recorder> entry : recorders.entrySet()) {
+            Histogram histogram = entry.getValue().getIntervalHistogram();
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            total.add(histogram);
+            printRow(entry.getKey().getName(), histogram, elapsedSeconds);
+        }
+        printRow("total", total, elapsedSeconds);
+    }
+
+    private static void printRow(String name, Histogram histogram, double elapsedSeconds) {
+        System.out.printf("%-10s %10d %10.1f %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+            name,
+            histogram.getTotalCount(),
+            histogram.getTotalCount() / elapsedSeconds,
+            millis(histogram.getValueAtPercentile(50)),
+            millis(histogram.getValueAtPercentile(90)),
+            millis(histogram.getValueAtPercentile(99)),
+            millis(histogram.getValueAtPercentile(99.9)),
+            millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
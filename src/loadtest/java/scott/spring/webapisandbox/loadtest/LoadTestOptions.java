@@ -0,0 +1,125 @@
+package scott.spring.webapisandbox.loadtest;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load test settings, parsed from "key=value" arguments:
+ * <ul>
+ *     <li>mode - "concurrency" (closed loop, each worker sends as fast as it gets responses) or
+ *     "rate" (open loop, requests are scheduled at a fixed arrival rate). Default concurrency.</li>
+ *     <li>concurrency - number of workers / connections. Default 16.</li>
+ *     <li>rate - total requests per second in rate mode. Default 1000.</li>
+ *     <li>warmup, duration - seconds of unrecorded warm-up and of measurement. Defaults 10 and 30.</li>
+ *     <li>employees - number of employees created before the run. Default 1000.</li>
+ *     <li>mix - relative weights, e.g. "getAll:5,getById:75,create:10,update:10" (the default).</li>
+ *     <li>app.* - passed to the application as --* properties, e.g. app.spring.cache.type=none.</li>
+ * </ul>
+ */
+@Getter
+public class LoadTestOptions {
+
+    public enum Mode { CONCURRENCY, RATE }
+
+    private Mode mode = Mode.CONCURRENCY;
+    private int concurrency = 16;
+    private int rate = 1000;
+    private int warmupSeconds = 10;
+    private int durationSeconds = 30;
+    private int employees = 1000;
+    private final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+    private final List<String> applicationArgs = new ArrayList<>();
+
+    public static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        options.parseMix("getAll:5,getById:75,create:10,update:10");
+
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got '" + arg + "'");
+            }
+            String key = arg.substring(0, separator);
+            String value = arg.substring(separator + 1);
+
+            if (key.startsWith("app.")) {
+                options.applicationArgs.add("--" + key.substring("app.".length()) + "=" + value);
+                continue;
+            }
+
+            switch (key) {
+                case "mode":
+                    options.mode = Mode.valueOf(value.toUpperCase());
+                    break;
+                case "concurrency":
+                    options.concurrency = positive(key, value);
+                    break;
+                case "rate":
+                    options.rate = positive(key, value);
+                    break;
+                case "warmup":
+                    options.warmupSeconds = notNegative(key, value);
+                    break;
+                case "duration":
+                    options.durationSeconds = positive(key, value);
+                    break;
+                case "employees":
+                    options.employees = positive(key, value);
+                    break;
+                case "mix":
+                    options.parseMix(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option '" + key + "'");
+            }
+        }
+
+        return options;
+    }
+
+    private void parseMix(String value) {
+        mix.clear();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight but got '" + entry + "'");
+            }
+            mix.put(Operation.fromName(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The mix must have at least one positive weight");
+        }
+    }
+
+    private static int notNegative(String key, String value) {
+        int parsed = Integer.parseInt(value);
+        if (parsed < 0) {
+            throw new IllegalArgumentException(key + " must not be negative");
+        }
+        return parsed;
+    }
+
+    private static int positive(String key, String value) {
+        int parsed = Integer.parseInt(value);
+        if (parsed <= 0) {
+            throw new IllegalArgumentException(key + " must be positive");
+        }
+        return parsed;
+    }
+
+    @Override
+    public String toString() {
+        return "mode=" + mode.name().toLowerCase()
+            + " concurrency=" + concurrency
+            + (mode == Mode.RATE ? " rate=" + rate + "/s" : "")
+            + " warmup=" + warmupSeconds + "s"
+            + " duration=" + durationSeconds + "s"
+            + " employees=" + employees
+            + " mix=" + mix
+            + (applicationArgs.isEmpty() ? "" : " app=" + applicationArgs);
+    }
+}
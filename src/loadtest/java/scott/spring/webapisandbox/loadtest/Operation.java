@@ -0,0 +1,30 @@
+package scott.spring.webapisandbox.loadtest;
+
+/**
+ * The EmployeeController calls the load test can make.
+ */
+public enum Operation {
+    GET_ALL("getAll"),
+    GET_BY_ID("getById"),
+    CREATE("create"),
+    UPDATE("update");
+
+    private final String _name;
+
+    Operation(String name) {
+        this._name = name;
+    }
+
+    public String getName() {
+        return _name;
+    }
+
+    public static Operation fromName(String name) {
+        for (Operation operation : values()) {
+            if (operation._name.equalsIgnoreCase(name)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation '" + name + "'");
+    }
+}
@@ -2,10 +2,8 @@ package scott.spring.webapisandbox;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
 @SpringBootApplication
-@EnableJpaRepositories
 public class Application {
 	public static void main(String[] args) {
 		SpringApplication.run(Application.class, args);
@@ -0,0 +1,81 @@
+package scott.spring.webapisandbox.apispec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import scott.spring.webapisandbox.Application;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the Swagger 2 specification of the API at build time, so that the running application can
+ * serve it as a static file instead of scanning the controllers (see ApiSpecConfig).
+ *
+ * Boots the application on a random port with Springfox on, fetches /v2/api-docs and writes it,
+ * with a gzip copy alongside, to the directory given as the first argument. The host Springfox
+ * fills in from the request is dropped, and keys are sorted so the output only changes when the
+ * API does.
+ *
+ * The application logs only warnings meanwhile, and Springfox's complaints about parameters with
+ * no example (harmless, but logged with a stack trace) not even those.
+ */
+public class ApiSpecGenerator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ApiSpecGenerator.class);
+
+    public static final String SPEC_FILE = "employee-api.json";
+
+    public static void main(String[] args) throws Exception {
+        Path outputDirectory = Path.of(args[0]);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .run("--server.port=0", "--logging.level.root=WARN", "--spring.main.banner-mode=off",
+                    "--logging.level.scott.spring.webapisandbox.apispec=INFO",
+                    "--logging.level.io.swagger.models.parameters.AbstractSerializableParameter=ERROR",
+                    "--app.swagger.enabled=true")) {
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            byte[] spec = normalize(fetch("http://localhost:" + port + "/v2/api-docs"));
+
+            Files.createDirectories(outputDirectory);
+            Files.write(outputDirectory.resolve(SPEC_FILE), spec);
+            try (OutputStream gzip = new GZIPOutputStream(Files.newOutputStream(outputDirectory.resolve(SPEC_FILE + ".gz"))) {{
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }}) {
+                gzip.write(spec);
+            }
+            LOG.info("Wrote {} ({} bytes) to {}", SPEC_FILE, spec.length, outputDirectory);
+        }
+    }
+
+    private static String fetch(String uri) throws IOException, InterruptedException {
+        HttpResponse<String> response = HttpClient.newHttpClient()
+            .send(HttpRequest.newBuilder(URI.create(uri)).build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(uri + " returned " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    private static byte[] normalize(String spec) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        Map<String, Object> model = objectMapper.readValue(spec, new TypeReference<Map<String, Object>>() {});
+        model.remove("host");
+        return objectMapper.writeValueAsBytes(model);
+    }
+}
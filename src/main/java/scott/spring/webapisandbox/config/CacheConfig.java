@@ -0,0 +1,19 @@
+package scott.spring.webapisandbox.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Turns on the Spring cache abstraction. The cache provider (Caffeine), the cache names and
+ * the size/TTL eviction policy are all set in application.properties.
+ *
+ * The employee cache is read and written through EmployeeCache rather than the caching
+ * annotations, so that a cached employee is only ever replaced by a newer version of it.
+ */
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class CacheConfig {
+
+    public static final String EMPLOYEE_CACHE = "employees";
+}
@@ -0,0 +1,44 @@
+package scott.spring.webapisandbox.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Training run for the class-data sharing archive built by the "cds" Maven profile
+ * (app.startup.training-run): once the application is ready it serves one request to itself, so
+ * that the classes on the first-request path are archived too, and then exits. The JVM writes the
+ * archive on exit (-XX:ArchiveClassesAtExit).
+ */
+@Component
+@ConditionalOnProperty(name = "app.startup.training-run", havingValue = "true")
+public class CdsTrainingRun implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CdsTrainingRun.class);
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        int port = ((WebServerApplicationContext) event.getApplicationContext()).getWebServer().getPort();
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/api/employee").openConnection();
+            try (InputStream body = connection.getInputStream()) {
+                body.readAllBytes();
+            }
+            LOG.info("Training request returned {}", connection.getResponseCode());
+        } catch (IOException e) {
+            LOG.warn("Training request failed; the archive will only cover startup", e);
+        }
+
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
@@ -0,0 +1,28 @@
+package scott.spring.webapisandbox.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Tuning for lazy bean initialization (spring.main.lazy-initialization, on in the "fast-startup"
+ * profile), under which beans are only created when first used.
+ *
+ * The entity manager factory is kept eager. With repository bootstrapping deferred, Hibernate then
+ * boots on a background thread while the rest of the context starts, instead of on the thread
+ * handling the first request.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.main.lazy-initialization", havingValue = "true")
+public class FastStartupConfig {
+
+    @Bean
+    public static LazyInitializationExcludeFilter eagerEntityManagerFactory() {
+        return (beanName, beanDefinition, beanType) ->
+                "entityManagerFactory".equals(beanName)
+                        || (beanType != null && EntityManagerFactory.class.isAssignableFrom(beanType));
+    }
+}
@@ -0,0 +1,54 @@
+package scott.spring.webapisandbox.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.connectionfactory.R2dbcTransactionManager;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+/**
+ * Non-blocking database access for the reactive variant of the API (the "reactive" profile).
+ * Spring Boot 2.2 has no R2DBC auto-configuration, so the pool and client are set up here.
+ *
+ * The R2DBC driver opens the same in-memory H2 database as the JDBC datasource. Hibernate still
+ * creates the schema at startup; only request handling goes through R2DBC.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class R2dbcConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool connectionPool(
+        @Value("${app.r2dbc.url}") String url,
+        @Value("${spring.datasource.username:sa}") String username,
+        @Value("${spring.datasource.password:}") String password,
+        @Value("${app.r2dbc.pool.max-size}") int maxSize
+    ) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .maxSize(maxSize)
+                .build());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionPool connectionPool) {
+        return DatabaseClient.create(connectionPool);
+    }
+
+    // Exposed only as an operator: a second TransactionManager bean would leave @Transactional on
+    // the JPA services without a unique default.
+    @Bean
+    public TransactionalOperator r2dbcTransactionalOperator(ConnectionPool connectionPool) {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionPool));
+    }
+}
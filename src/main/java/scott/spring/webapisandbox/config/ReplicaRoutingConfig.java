@@ -0,0 +1,103 @@
+package scott.spring.webapisandbox.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import scott.spring.webapisandbox.webapi.filters.ReadYourWritesFilter;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Opt-in (app.datasource.replicas, a comma-separated list of JDBC URLs) read replicas. The primary
+ * is still configured with spring.datasource.*; each replica gets a pool of its own with the same
+ * credentials and spring.datasource.hikari settings, picked per read-only transaction by
+ * app.datasource.replica-selection (round-robin or least-busy).
+ *
+ * Writes, and reads by a client within app.datasource.read-your-writes-ms of its last write, go
+ * to the primary. Hibernate creates the schema on the primary only; replicas are expected to get
+ * it, and the data, by replication.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replicas")
+public class ReplicaRoutingConfig {
+
+    private final List<HikariDataSource> _pools = new ArrayList<>();
+
+    @Bean
+    public DataSource dataSource(
+        DataSourceProperties properties,
+        Environment environment,
+        MeterRegistry meterRegistry,
+        @Value("${app.datasource.replicas}") String[] replicaUrls,
+        @Value("${app.datasource.replica-selection}") String selection
+    ) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = pool(properties, properties.determineUrl(), "primary", binder, meterRegistry);
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String replicaUrl : replicaUrls) {
+            if (!replicaUrl.isBlank()) {
+                HikariDataSource replica = pool(properties, replicaUrl.strip(), "replica-" + (replicas.size() + 1), binder, meterRegistry);
+                replica.setReadOnly(true);
+                replicas.add(replica);
+            }
+        }
+
+        ReplicaRoutingDataSource.Selection replicaSelection =
+            ReplicaRoutingDataSource.Selection.valueOf(selection.strip().toUpperCase(Locale.ROOT).replace('-', '_'));
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replicas, replicaSelection));
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+        @Value("${app.datasource.read-your-writes-ms}") long windowMillis
+    ) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter(windowMillis));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+
+    /**
+     * Carries a request's pinning to the thread that does its async work, such as writing a
+     * StreamingResponseBody. Spring Boot applies this to the task executor Spring MVC uses.
+     */
+    @Bean
+    public TaskDecorator replicaPinningTaskDecorator() {
+        return ReplicaRoutingDataSource::withCallersPinning;
+    }
+
+    @PreDestroy
+    public void closePools() {
+        _pools.forEach(HikariDataSource::close);
+    }
+
+    private HikariDataSource pool(DataSourceProperties properties, String url, String poolName, Binder binder, MeterRegistry meterRegistry) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(poolName);
+        // Spring Boot only instruments DataSource beans, and these pools sit behind the router.
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+
+        _pools.add(pool);
+        return pool;
+    }
+}
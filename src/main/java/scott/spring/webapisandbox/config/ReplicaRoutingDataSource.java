@@ -0,0 +1,138 @@
+package scott.spring.webapisandbox.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends connections for read-only transactions to a replica and everything else to the primary.
+ * The choice is made when the connection is requested, so this must sit behind a
+ * LazyConnectionDataSourceProxy: otherwise the transaction manager asks for the connection
+ * before the transaction is marked read-only.
+ *
+ * A thread can be pinned to the primary (see {@link #setPinnedToPrimary}), for reads that must see
+ * the latest committed state, such as a client's own recent writes. The pin is thread-local, so work
+ * handed to another thread must carry it there (see {@link #withCallersPinning}).
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    public enum Selection {
+        ROUND_ROBIN,
+        LEAST_BUSY
+    }
+
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    private final DataSource _primary;
+    private final List<HikariDataSource> _replicas;
+    private final Selection _selection;
+    private final AtomicInteger _next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, Selection selection) {
+        this._primary = primary;
+        this._replicas = List.copyOf(replicas);
+        this._selection = selection;
+    }
+
+    public static void setPinnedToPrimary(boolean pinned) {
+        if (pinned) {
+            PINNED_TO_PRIMARY.set(Boolean.TRUE);
+        } else {
+            PINNED_TO_PRIMARY.remove();
+        }
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PINNED_TO_PRIMARY.get() != null;
+    }
+
+    /**
+     * Runs the work pinned (or not) as given, then restores the thread's own pinning.
+     */
+    public static <T> T withPinning(boolean pinned, Supplier<T> work) {
+        boolean previous = isPinnedToPrimary();
+        setPinnedToPrimary(pinned);
+        try {
+            return work.get();
+        } finally {
+            setPinnedToPrimary(previous);
+        }
+    }
+
+    /**
+     * Runs the read on the primary, for reads whose result must be at least as new as something
+     * else read there (an ETag from the change counter, say).
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        return withPinning(true, read);
+    }
+
+    /**
+     * The task, set to run pinned as the calling thread is now, for handing to another thread. Also
+     * usable as a TaskDecorator.
+     */
+    public static Runnable withCallersPinning(Runnable task) {
+        boolean pinned = isPinnedToPrimary();
+        return () -> withPinning(pinned, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * As {@link #withCallersPinning}, for a task with a result.
+     */
+    public static <T> Supplier<T> supplyWithCallersPinning(Supplier<T> task) {
+        boolean pinned = isPinnedToPrimary();
+        return () -> withPinning(pinned, task);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return determineTarget().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return determineTarget().getConnection(username, password);
+    }
+
+    private DataSource determineTarget() {
+        if (_replicas.isEmpty() || isPinnedToPrimary() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return _primary;
+        }
+
+        // Counter overflow just wraps to another valid index.
+        int start = Math.floorMod(_next.getAndIncrement(), _replicas.size());
+        if (_selection == Selection.ROUND_ROBIN) {
+            return _replicas.get(start);
+        }
+
+        // Least busy, with ties going round-robin so idle replicas share the load.
+        HikariDataSource leastBusy = null;
+        int fewestActive = Integer.MAX_VALUE;
+        for (int i = 0; i < _replicas.size(); i++) {
+            HikariDataSource replica = _replicas.get((start + i) % _replicas.size());
+            int active = activeConnections(replica);
+            if (active < fewestActive) {
+                leastBusy = replica;
+                fewestActive = active;
+            }
+        }
+        return leastBusy;
+    }
+
+    private static int activeConnections(HikariDataSource replica) {
+        // The pool starts with its first connection; until then it is as idle as can be.
+        HikariPoolMXBean pool = replica.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getActiveConnections();
+    }
+}
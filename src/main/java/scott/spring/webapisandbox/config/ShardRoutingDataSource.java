@@ -0,0 +1,52 @@
+package scott.spring.webapisandbox.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Sends each connection to the shard chosen for the current thread (see {@link #setCurrentShard}),
+ * or to the first shard when none is. Like {@link ReplicaRoutingDataSource} the choice is made
+ * when the connection is requested, so this must sit behind a LazyConnectionDataSourceProxy:
+ * then a transaction goes to whichever shard is current when it runs its first statement.
+ */
+public class ShardRoutingDataSource extends AbstractDataSource {
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private final List<? extends DataSource> _shards;
+
+    public ShardRoutingDataSource(List<? extends DataSource> shards) {
+        this._shards = List.copyOf(shards);
+    }
+
+    public static void setCurrentShard(Integer shard) {
+        if (shard != null) {
+            CURRENT_SHARD.set(shard);
+        } else {
+            CURRENT_SHARD.remove();
+        }
+    }
+
+    public static Integer getCurrentShard() {
+        return CURRENT_SHARD.get();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return determineTarget().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return determineTarget().getConnection(username, password);
+    }
+
+    private DataSource determineTarget() {
+        Integer shard = CURRENT_SHARD.get();
+        return _shards.get(shard == null ? 0 : shard);
+    }
+}
@@ -0,0 +1,135 @@
+package scott.spring.webapisandbox.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.tool.schema.Action;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Opt-in (app.sharding.shards, a comma-separated list of JDBC URLs) sharding of the employees
+ * table. Every shard gets a pool of its own with the spring.datasource credentials and
+ * spring.datasource.hikari settings; spring.datasource.url itself is not used. Which shard a row
+ * lives on, and the reads that span every shard, are up to
+ * {@link scott.spring.webapisandbox.services.EmployeeShardRouter}.
+ *
+ * Hibernate creates the schema on the first shard, which also holds the id sequence. The DDL it
+ * ran is captured and run on each of the other shards that has no employees table yet.
+ *
+ * Can't be combined with app.datasource.replicas: both replace the dataSource bean.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sharding.shards")
+public class ShardingConfig {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardingConfig.class);
+
+    private final List<HikariDataSource> _pools = new ArrayList<>();
+    private final StringWriter _schemaScript = new StringWriter();
+
+    @Bean
+    public DataSource dataSource(
+        DataSourceProperties properties,
+        Environment environment,
+        MeterRegistry meterRegistry,
+        @Value("${app.sharding.shards}") String[] shardUrls
+    ) {
+        Binder binder = Binder.get(environment);
+        for (String shardUrl : shardUrls) {
+            if (!shardUrl.isBlank()) {
+                HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(shardUrl.strip()).build();
+                binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+                pool.setPoolName("shard-" + _pools.size());
+                // Spring Boot only instruments DataSource beans, and these pools sit behind the router.
+                pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+                _pools.add(pool);
+            }
+        }
+
+        return new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(_pools));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardSchemaScript() {
+        return hibernateProperties -> {
+            // With a script action set Hibernate ignores hbm2ddl.auto, so it is passed on as the
+            // database action too.
+            Action databaseAction = Action.interpretHbm2ddlSetting(hibernateProperties.get(AvailableSettings.HBM2DDL_AUTO));
+            hibernateProperties.put(AvailableSettings.HBM2DDL_DATABASE_ACTION, databaseAction);
+            hibernateProperties.put(AvailableSettings.HBM2DDL_SCRIPTS_ACTION, "create");
+            hibernateProperties.put(AvailableSettings.HBM2DDL_SCRIPTS_CREATE_TARGET, _schemaScript);
+        };
+    }
+
+    @Bean
+    public SmartInitializingSingleton shardSchemaInitializer(EntityManagerFactory entityManagerFactory) {
+        return () -> {
+            // Waits for Hibernate to finish starting (it may be doing so in the background), by
+            // which time the script has been written.
+            entityManagerFactory.getMetamodel();
+
+            List<String> statements = _schemaScript.toString().lines()
+                .map(line -> line.strip().replaceAll(";$", ""))
+                .filter(line -> !line.isEmpty())
+                .collect(Collectors.toList());
+            for (int shard = 1; shard < _pools.size(); shard++) {
+                createSchema(_pools.get(shard), statements);
+            }
+        };
+    }
+
+    @PreDestroy
+    public void closePools() {
+        _pools.forEach(HikariDataSource::close);
+    }
+
+    private static void createSchema(HikariDataSource shard, List<String> statements) {
+        try (Connection connection = shard.getConnection()) {
+            if (hasEmployeesTable(connection)) {
+                return;
+            }
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : statements) {
+                    statement.execute(sql);
+                }
+            }
+            LOG.info("Created the employee schema on {}", shard.getPoolName());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not create the employee schema on " + shard.getPoolName(), e);
+        }
+    }
+
+    private static boolean hasEmployeesTable(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String table = metaData.storesUpperCaseIdentifiers() ? "EMPLOYEES" : "employees";
+        try (ResultSet tables = metaData.getTables(null, null, table, new String[] { "TABLE" })) {
+            return tables.next();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package scott.spring.webapisandbox.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.web.context.support.RequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup timeline report (app.startup.timeline.enabled, on in the "fast-startup" profile): how far
+ * into the life of the JVM each startup phase finished, and which beans took longest to create.
+ * It is logged once the application is ready, and the time to the first handled request is logged
+ * when that request completes (servlet stack only; WebFlux publishes no per-request events).
+ *
+ * Bean times are inclusive: a bean that pulls in its dependencies as it is created is charged for
+ * them too. Beans left for first use by lazy initialization show up in the first-request report.
+ *
+ * Registered in META-INF/spring.factories so that it is in place before any bean is created.
+ */
+public class StartupTimeline implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+    public static final String ENABLED_PROPERTY = "app.startup.timeline.enabled";
+
+    private static final Logger LOG = LoggerFactory.getLogger(StartupTimeline.class);
+    private static final int SLOWEST_BEAN_COUNT = 15;
+
+    private final Map<String, Long> _phases = new LinkedHashMap<>();
+    private final Map<String, Long> _beanStartNanos = new ConcurrentHashMap<>();
+    private final Map<String, Long> _beanNanos = new ConcurrentHashMap<>();
+    private volatile boolean _firstRequestHandled;
+
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        if (!context.getEnvironment().getProperty(ENABLED_PROPERTY, Boolean.class, false)) {
+            return;
+        }
+
+        mark("context initializing");
+        context.getBeanFactory().addBeanPostProcessor(new BeanTimer());
+        context.getBeanFactory().registerSingleton("startupTimeline", this);
+        context.addApplicationListener(this::onEvent);
+    }
+
+    /**
+     * Each phase recorded so far, in order, with the JVM uptime in milliseconds at which it ended.
+     */
+    public synchronized Map<String, Long> getPhases() {
+        return new LinkedHashMap<>(_phases);
+    }
+
+    /**
+     * Time taken to create each bean, in milliseconds: during startup until the application is
+     * ready, and from then on until the first request has been handled.
+     */
+    public Map<String, Long> getBeanMillis() {
+        Map<String, Long> beanMillis = new LinkedHashMap<>();
+        _beanNanos.forEach((name, nanos) -> beanMillis.put(name, TimeUnit.NANOSECONDS.toMillis(nanos)));
+        return beanMillis;
+    }
+
+    private void onEvent(ApplicationEvent event) {
+        if (event instanceof ContextRefreshedEvent) {
+            mark("context refreshed");
+        } else if (event instanceof WebServerInitializedEvent) {
+            mark("web server started");
+        } else if (event instanceof ApplicationStartedEvent) {
+            mark("runners started");
+        } else if (event instanceof ApplicationReadyEvent) {
+            mark("application ready");
+            LOG.info("Startup timeline (ms since JVM start):\n{}", report());
+            // Only beans created from here on are left for the first-request report.
+            _beanNanos.clear();
+        } else if (event instanceof RequestHandledEvent && !_firstRequestHandled) {
+            _firstRequestHandled = true;
+            mark("first request handled");
+            LOG.info("First request handled {} ms after JVM start, creating these beans on the way:\n{}",
+                    uptimeMillis(), slowestBeans());
+        }
+    }
+
+    private synchronized void mark(String phase) {
+        _phases.put(phase, uptimeMillis());
+    }
+
+    private synchronized String report() {
+        StringBuilder report = new StringBuilder();
+        long previous = 0;
+        for (Map.Entry<String, Long> phase : _phases.entrySet()) {
+            report.append(String.format("  %7d  %+7d  %s%n", phase.getValue(), phase.getValue() - previous, phase.getKey()));
+            previous = phase.getValue();
+        }
+        report.append("Slowest beans (ms, including the beans they create):\n").append(slowestBeans());
+        return report.toString();
+    }
+
+    private String slowestBeans() {
+        StringBuilder beans = new StringBuilder();
+        getBeanMillis().entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(SLOWEST_BEAN_COUNT)
+                .forEach(bean -> beans.append(String.format("  %7d  %s%n", bean.getValue(), bean.getKey())));
+        return beans.toString();
+    }
+
+    private static long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    private class BeanTimer implements InstantiationAwareBeanPostProcessor {
+
+        @Override
+        public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) throws BeansException {
+            if (!_firstRequestHandled) {
+                _beanStartNanos.put(beanName, System.nanoTime());
+            }
+            return null;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+            // Also called for the objects FactoryBeans produce, under the same name; only the first call
+            // after instantiation counts.
+            Long startNanos = _beanStartNanos.remove(beanName);
+            if (startNanos != null) {
+                _beanNanos.put(beanName, System.nanoTime() - startNanos);
+            }
+            return bean;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package scott.spring.webapisandbox.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST)
+public class EmployeeImportFormatException extends Exception{
+
+    public EmployeeImportFormatException(String message){
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package scott.spring.webapisandbox.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.CONFLICT)
+public class EmployeeVersionConflictException extends Exception{
+
+    public EmployeeVersionConflictException(String message){
+        super(message);
+    }
+}
@@ -1,27 +1,86 @@
 package scott.spring.webapisandbox.models;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
+import javax.persistence.Version;
+import java.util.Locale;
 
 @Entity
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
-@Table(name = "employees")
+@Table(name = "employees", indexes = {
+    @Index(name = "ix_employees_first_name_search", columnList = "first_name_search, id"),
+    @Index(name = "ix_employees_last_name_search", columnList = "last_name_search, id")
+})
 public class Employee {
 
+    public static final String ID_SEQUENCE = "employee_id_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Pooled allocation: one sequence round trip hands out a block of ids, so batched inserts
+    // are not each preceded by a "next value" call. An id that is already set is kept.
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @GenericGenerator(name = ID_SEQUENCE, strategy = "scott.spring.webapisandbox.models.PresetOrSequenceIdGenerator", parameters = {
+        @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = ID_SEQUENCE),
+        @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "" + ID_ALLOCATION_SIZE)
+    })
     private Integer id;
 
     private String firstName;
     private String lastName;
+
+    @Version
+    private Integer version;
+
+    // Lower-cased copies of the names, indexed for case-insensitive prefix search. They are kept
+    // in step by the name setters (and by EmployeeRepositoryImpl for bulk updates).
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @Column(name = "first_name_search")
+    private String firstNameSearch;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @Column(name = "last_name_search")
+    private String lastNameSearch;
+
+    public Employee(Integer id, String firstName, String lastName) {
+        this(id, firstName, lastName, null);
+    }
+
+    public Employee(Integer id, String firstName, String lastName, Integer version) {
+        this.id = id;
+        this.version = version;
+        setFirstName(firstName);
+        setLastName(lastName);
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+        this.firstNameSearch = toSearchKey(firstName);
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+        this.lastNameSearch = toSearchKey(lastName);
+    }
+
+    public static String toSearchKey(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
 }
@@ -0,0 +1,32 @@
+package scott.spring.webapisandbox.models;
+
+/**
+ * Hands out employee ids the way Hibernate's pooled optimizer does for the id generator on
+ * {@link Employee}: each value v taken from {@link Employee#ID_SEQUENCE} reserves the block
+ * (v - {@link Employee#ID_ALLOCATION_SIZE}, v], so most ids need no round trip. For code that
+ * assigns ids itself; it isn't thread-safe, so callers synchronize.
+ */
+public final class EmployeeIdBlock {
+
+    private int _nextId = 1;
+    private int _lastId;
+
+    /**
+     * The next id of the current block, or null once it is used up and {@link #start} must be
+     * given the next sequence value.
+     */
+    public Integer next() {
+        return _nextId <= _lastId ? Integer.valueOf(_nextId++) : null;
+    }
+
+    /**
+     * Moves on to the block that the sequence value reserves, and takes its first id.
+     */
+    public int start(long sequenceValue) {
+        int blockEnd = Math.toIntExact(sequenceValue);
+        // The first value of a sequence that starts at 1 is 1 itself, not the end of a block.
+        _nextId = Math.max(1, blockEnd - Employee.ID_ALLOCATION_SIZE + 1);
+        _lastId = blockEnd;
+        return _nextId++;
+    }
+}
@@ -0,0 +1,21 @@
+package scott.spring.webapisandbox.models;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import java.io.Serializable;
+
+/**
+ * The sequence generator, except that an entity whose id is already set keeps it. Sharded ids are
+ * handed out before the insert, and this lets those employees be persisted (and their inserts
+ * batched) like any other.
+ */
+public class PresetOrSequenceIdGenerator extends SequenceStyleGenerator {
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        Serializable id = session.getEntityPersister(null, object).getIdentifier(object, session);
+        return id != null ? id : super.generate(session, object);
+    }
+}
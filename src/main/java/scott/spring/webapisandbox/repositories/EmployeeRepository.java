@@ -1,9 +1,94 @@
 package scott.spring.webapisandbox.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import scott.spring.webapisandbox.models.Employee;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+/**
+ * The *Response queries select straight into {@link EmployeeResponse} with a constructor
+ * expression, so read paths never create managed entities, persistence context snapshots or
+ * flush-time dirty checks.
+ */
 @Repository
-public interface EmployeeRepository extends JpaRepository<Employee, Integer> {
+public interface EmployeeRepository extends JpaRepository<Employee, Integer>, EmployeeRepositoryCustom {
+
+    @Transactional(readOnly = true)
+    @Query("select new scott.spring.webapisandbox.webapi.models.response.EmployeeResponse(e.id, e.firstName, e.lastName, e.version) "
+        + "from Employee e where e.id = :id")
+    Optional<EmployeeResponse> findResponseById(@Param("id") Integer id);
+
+    @Transactional(readOnly = true)
+    @Query("select new scott.spring.webapisandbox.webapi.models.response.EmployeeResponse(e.id, e.firstName, e.lastName, e.version) "
+        + "from Employee e order by e.id")
+    List<EmployeeResponse> findAllResponses();
+
+    /**
+     * The employees with the given ids, in no particular order. Each id is a bind parameter, so
+     * callers keep the collection to a bounded size.
+     */
+    @Transactional(readOnly = true)
+    @Query("select new scott.spring.webapisandbox.webapi.models.response.EmployeeResponse(e.id, e.firstName, e.lastName, e.version) "
+        + "from Employee e where e.id in :ids")
+    List<EmployeeResponse> findResponsesByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Transactional(readOnly = true)
+    @Query("select e.version from Employee e where e.id = :id")
+    Optional<Integer> findVersionById(@Param("id") Integer id);
+
+    /**
+     * Keyset page: employees with an id strictly greater than the given id, in id order.
+     * Only the page size of the pageable is used, the offset should always be zero.
+     */
+    @Transactional(readOnly = true)
+    @Query("select new scott.spring.webapisandbox.webapi.models.response.EmployeeResponse(e.id, e.firstName, e.lastName, e.version) "
+        + "from Employee e where e.id > :id order by e.id")
+    List<EmployeeResponse> findResponsesByIdGreaterThan(@Param("id") Integer id, Pageable pageable);
+
+    /**
+     * Employees whose lower-cased first name matches the given LIKE pattern (a lower-cased prefix,
+     * escaped with '!', followed by '%'), ordered so the first_name_search index serves both the
+     * filter and the limit.
+     */
+    @Transactional(readOnly = true)
+    @Query("select new scott.spring.webapisandbox.webapi.models.response.EmployeeResponse(e.id, e.firstName, e.lastName, e.version) "
+        + "from Employee e where e.firstNameSearch like :pattern escape '!' order by e.firstNameSearch, e.id")
+    List<EmployeeResponse> findResponsesByFirstNamePrefix(@Param("pattern") String pattern, Pageable pageable);
+
+    /**
+     * As {@link #findResponsesByFirstNamePrefix}, for the last name.
+     */
+    @Transactional(readOnly = true)
+    @Query("select new scott.spring.webapisandbox.webapi.models.response.EmployeeResponse(e.id, e.firstName, e.lastName, e.version) "
+        + "from Employee e where e.lastNameSearch like :pattern escape '!' order by e.lastNameSearch, e.id")
+    List<EmployeeResponse> findResponsesByLastNamePrefix(@Param("pattern") String pattern, Pageable pageable);
+
+    /**
+     * Streams every employee in id order. Must be consumed inside a transaction and closed afterwards.
+     */
+    @Query("select new scott.spring.webapisandbox.webapi.models.response.EmployeeResponse(e.id, e.firstName, e.lastName, e.version) "
+        + "from Employee e order by e.id")
+    @QueryHints(value = {
+        @QueryHint(name = HINT_FETCH_SIZE, value = "500")
+    })
+    Stream<EmployeeResponse> streamAllResponses();
+
+    @Transactional
+    @Modifying
+    @Query("delete from Employee e where e.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Integer> ids);
 }
@@ -0,0 +1,36 @@
+package scott.spring.webapisandbox.repositories;
+
+import scott.spring.webapisandbox.models.Employee;
+
+import java.util.List;
+
+public interface EmployeeRepositoryCustom {
+
+    /**
+     * Updates an employee with a single UPDATE statement, without loading it first. Only the
+     * non-null names are written, and the version is always incremented. When an expected version
+     * is given the row is only updated if its version still matches.
+     *
+     * @return the number of rows updated, so 0 when the id does not exist or the version did not match
+     */
+    int updateEmployee(Integer id, Integer expectedVersion, String firstName, String lastName);
+
+    /**
+     * Takes the next value of the employee id sequence. The sequence steps by
+     * {@link Employee#ID_ALLOCATION_SIZE}, and the value is the highest id of a block of that
+     * many that nobody else will be given.
+     */
+    int nextIdSequenceValue();
+
+    /**
+     * Inserts new employees (with no version yet) under the ids they already have, rather than
+     * ones from the sequence. An id that is already taken fails the insert.
+     */
+    void insertWithIds(List<Employee> employees);
+
+    /**
+     * Copies employees in from another database, keeping their ids and versions. An employee
+     * whose id is already taken is left out.
+     */
+    void copyMissing(List<Employee> employees);
+}
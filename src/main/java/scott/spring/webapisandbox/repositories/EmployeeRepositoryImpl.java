@@ -0,0 +1,75 @@
+package scott.spring.webapisandbox.repositories;
+
+import org.hibernate.ReplicationMode;
+import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.transaction.annotation.Transactional;
+import scott.spring.webapisandbox.models.Employee;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+public class EmployeeRepositoryImpl implements EmployeeRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager _entityManager;
+
+    @Override
+    public int updateEmployee(Integer id, Integer expectedVersion, String firstName, String lastName) {
+        CriteriaBuilder builder = _entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Employee> update = builder.createCriteriaUpdate(Employee.class);
+        Root<Employee> employee = update.from(Employee.class);
+
+        if (firstName != null) {
+            update.set(employee.<String>get("firstName"), firstName);
+            update.set(employee.<String>get("firstNameSearch"), Employee.toSearchKey(firstName));
+        }
+        if (lastName != null) {
+            update.set(employee.<String>get("lastName"), lastName);
+            update.set(employee.<String>get("lastNameSearch"), Employee.toSearchKey(lastName));
+        }
+        update.set(employee.<Integer>get("version"), builder.sum(employee.<Integer>get("version"), 1));
+
+        Predicate matches = builder.equal(employee.get("id"), id);
+        if (expectedVersion != null) {
+            matches = builder.and(matches, builder.equal(employee.get("version"), expectedVersion));
+        }
+        update.where(matches);
+
+        return _entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    public int nextIdSequenceValue() {
+        Dialect dialect = _entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        Number value = (Number) _entityManager
+            .createNativeQuery(dialect.getSequenceNextValString(Employee.ID_SEQUENCE))
+            .getSingleResult();
+        return value.intValue();
+    }
+
+    // The id generator keeps an id that is set, so these are plain persists, and their inserts
+    // are batched at flush.
+    @Override
+    @Transactional
+    public void insertWithIds(List<Employee> employees) {
+        employees.forEach(_entityManager::persist);
+    }
+
+    // Replication is Hibernate's copy-between-databases save: it keeps the given version and can
+    // skip ids already taken, but it looks each row up first, so it is only used for copies.
+    @Override
+    @Transactional
+    public void copyMissing(List<Employee> employees) {
+        Session session = _entityManager.unwrap(Session.class);
+        for (Employee employee : employees) {
+            session.replicate(employee, ReplicationMode.IGNORE);
+        }
+    }
+}
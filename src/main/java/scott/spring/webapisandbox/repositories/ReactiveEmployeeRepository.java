@@ -0,0 +1,122 @@
+package scott.spring.webapisandbox.repositories;
+
+import io.r2dbc.spi.Row;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import scott.spring.webapisandbox.models.Employee;
+import scott.spring.webapisandbox.models.EmployeeIdBlock;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+/**
+ * R2DBC counterpart of {@link EmployeeRepository} for the reactive API. Queries read straight into
+ * {@link EmployeeResponse}, like the JPA projections, and writes mirror what Hibernate would do
+ * (search keys, version column, sequence-allocated ids).
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveEmployeeRepository {
+
+    private static final String SELECT_RESPONSE = "select id, first_name, last_name, version from employees";
+
+    private final DatabaseClient _databaseClient;
+    private final EmployeeIdBlock _idBlock = new EmployeeIdBlock();
+
+    public ReactiveEmployeeRepository(DatabaseClient databaseClient) {
+        _databaseClient = databaseClient;
+    }
+
+    /**
+     * Streams every employee ordered by id. Rows are read from the driver as the subscriber
+     * requests them, so a slow client slows the query down instead of filling memory.
+     */
+    public Flux<EmployeeResponse> findAllResponses() {
+        return _databaseClient.execute(SELECT_RESPONSE + " order by id")
+                .map((row, metadata) -> toResponse(row))
+                .all();
+    }
+
+    public Mono<EmployeeResponse> findResponseById(Integer id) {
+        return _databaseClient.execute(SELECT_RESPONSE + " where id = :id")
+                .bind("id", id)
+                .map((row, metadata) -> toResponse(row))
+                .one();
+    }
+
+    public Mono<Boolean> existsById(Integer id) {
+        return _databaseClient.execute("select 1 from employees where id = :id")
+                .bind("id", id)
+                .map((row, metadata) -> Boolean.TRUE)
+                .first()
+                .defaultIfEmpty(Boolean.FALSE);
+    }
+
+    public Mono<EmployeeResponse> insert(String firstName, String lastName) {
+        return nextId().flatMap(id -> _databaseClient.execute(
+                    "insert into employees (id, first_name, last_name, first_name_search, last_name_search, version) "
+                    + "values (:id, :firstName, :lastName, :firstNameSearch, :lastNameSearch, 0)")
+                .bind("id", id)
+                .bind("firstName", firstName)
+                .bind("lastName", lastName)
+                .bind("firstNameSearch", Employee.toSearchKey(firstName))
+                .bind("lastNameSearch", Employee.toSearchKey(lastName))
+                .fetch()
+                .rowsUpdated()
+                .thenReturn(new EmployeeResponse(id, firstName, lastName, 0)));
+    }
+
+    /**
+     * Same contract as {@link EmployeeRepositoryCustom#updateEmployee}: sets both names, bumps the
+     * version and, when expectedVersion is given, only matches that version. Emits the number of
+     * rows updated.
+     */
+    public Mono<Integer> updateEmployee(Integer id, Integer expectedVersion, String firstName, String lastName) {
+        String sql = "update employees set first_name = :firstName, last_name = :lastName, "
+                + "first_name_search = :firstNameSearch, last_name_search = :lastNameSearch, version = version + 1 "
+                + "where id = :id" + (expectedVersion != null ? " and version = :version" : "");
+
+        DatabaseClient.GenericExecuteSpec update = _databaseClient.execute(sql)
+                .bind("firstName", firstName)
+                .bind("lastName", lastName)
+                .bind("firstNameSearch", Employee.toSearchKey(firstName))
+                .bind("lastNameSearch", Employee.toSearchKey(lastName))
+                .bind("id", id);
+        if (expectedVersion != null) {
+            update = update.bind("version", expectedVersion);
+        }
+
+        return update.fetch().rowsUpdated();
+    }
+
+    // Ids come from the same sequence blocks Hibernate uses, so most inserts skip the round trip.
+    private Mono<Integer> nextId() {
+        return Mono.defer(() -> {
+            synchronized (_idBlock) {
+                Integer id = _idBlock.next();
+                if (id != null) {
+                    return Mono.just(id);
+                }
+            }
+
+            return _databaseClient.execute("select next value for " + Employee.ID_SEQUENCE)
+                    .map((row, metadata) -> row.get(0, Long.class))
+                    .one()
+                    .map(sequenceValue -> {
+                        synchronized (_idBlock) {
+                            return _idBlock.start(sequenceValue);
+                        }
+                    });
+        });
+    }
+
+    private static EmployeeResponse toResponse(Row row) {
+        return new EmployeeResponse(
+                row.get("id", Integer.class),
+                row.get("first_name", String.class),
+                row.get("last_name", String.class),
+                row.get("version", Integer.class)
+        );
+    }
+}
@@ -0,0 +1,52 @@
+package scott.spring.webapisandbox.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import java.util.Collection;
+
+import static scott.spring.webapisandbox.config.CacheConfig.EMPLOYEE_CACHE;
+
+/**
+ * The employee cache, by id. Entries are merged by version rather than simply put: a reader that
+ * missed and loaded an employee can finish after a write has cached a newer version, and its
+ * older copy must not replace that one. With no cache manager, or any cache type but Caffeine
+ * (spring.cache.type=none, say), nothing is cached.
+ */
+@Component
+public class EmployeeCache {
+
+    private final Cache<Object, Object> _cache;
+
+    public EmployeeCache(ObjectProvider<CacheManager> cacheManager) {
+        CacheManager manager = cacheManager.getIfAvailable();
+        org.springframework.cache.Cache cache = manager == null ? null : manager.getCache(EMPLOYEE_CACHE);
+        this._cache = cache instanceof CaffeineCache ? ((CaffeineCache) cache).getNativeCache() : null;
+    }
+
+    public EmployeeResponse get(Integer employeeId) {
+        return _cache == null ? null : (EmployeeResponse) _cache.getIfPresent(employeeId);
+    }
+
+    /**
+     * Caches the employee unless a higher version of it is already cached.
+     */
+    public void put(EmployeeResponse employee) {
+        if (_cache != null) {
+            _cache.asMap().merge(employee.getId(), employee, (cached, offered) -> version(offered) >= version(cached) ? offered : cached);
+        }
+    }
+
+    public void putAll(Collection<EmployeeResponse> employees) {
+        employees.forEach(this::put);
+    }
+
+    private static int version(Object employee) {
+        Integer version = ((EmployeeResponse) employee).getVersion();
+        return version == null ? 0 : version;
+    }
+}
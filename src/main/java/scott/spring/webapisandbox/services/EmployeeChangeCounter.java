@@ -0,0 +1,66 @@
+package scott.spring.webapisandbox.services;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A table-level change counter for employees, bumped by every write made through
+ * {@link EmployeeService}. It gives collection endpoints an ETag that can be checked without
+ * reading any rows.
+ *
+ * The counter is bumped only after the writing transaction commits. A reader that sees the old
+ * value alongside new data just gets a 200 next time, while bumping first could pair the new
+ * value with old data and leave clients with a stale copy. Listeners are told about each change
+ * at the same point, on the writing thread, so they should only hand work off.
+ *
+ * For the same reason an in-memory copy of the data (the read model) must take a change before
+ * the counter moves; {@link #recordChange(Runnable)} runs that update at the same point, first.
+ */
+@Component
+public class EmployeeChangeCounter {
+
+    // Distinguishes counters from different runs, since the counter itself restarts at zero.
+    private final long _epoch = System.currentTimeMillis();
+    private final AtomicLong _changes = new AtomicLong();
+    private final List<Runnable> _listeners = new CopyOnWriteArrayList<>();
+
+    public void recordChange() {
+        recordChange(() -> { });
+    }
+
+    /**
+     * Records a change, running {@code apply} just before the counter moves.
+     */
+    public void recordChange(Runnable apply) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                    changed();
+                }
+            });
+        } else {
+            apply.run();
+            changed();
+        }
+    }
+
+    public void addListener(Runnable listener) {
+        _listeners.add(listener);
+    }
+
+    public String getETag() {
+        return "\"" + _epoch + "-" + _changes.get() + "\"";
+    }
+
+    private void changed() {
+        _changes.incrementAndGet();
+        _listeners.forEach(Runnable::run);
+    }
+}
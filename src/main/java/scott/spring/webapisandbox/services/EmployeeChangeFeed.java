@@ -0,0 +1,240 @@
+package scott.spring.webapisandbox.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import scott.spring.webapisandbox.services.EmployeeChangeJournal.ChangeType;
+import scott.spring.webapisandbox.services.EmployeeChangeJournal.Entry;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Change feed for employees. With app.changes.enabled, every create and update made through the
+ * API is appended to an {@link EmployeeChangeJournal} once it has committed, and subscribers get
+ * the changes as Server-Sent Events: the event id is the journal's sequence number, the event name
+ * "created" or "updated", and the data the employee as JSON. A subscriber that reconnects with the
+ * Last-Event-ID it saw last carries on from the next change.
+ *
+ * Each subscriber has a thread of its own (up to app.changes.max-subscribers) that reads the
+ * journal through its own cursor and sends one event at a time, so a slow client holds up only
+ * itself: it falls behind in the journal rather than filling a queue in memory, and once it is far
+ * enough behind for its changes to have been compacted it gets just the latest change to each
+ * employee. Idle subscribers get a comment every app.changes.heartbeat-ms, which is also how
+ * clients that have gone away are noticed.
+ *
+ * The journal lives in app.changes.journal-dir, or when that's empty a temporary directory that is
+ * removed on shutdown (so sequence numbers start again with each run).
+ */
+@Service
+public class EmployeeChangeFeed {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmployeeChangeFeed.class);
+    private static final int SEND_BATCH_SIZE = 256;
+
+    private final ObjectWriter _employeeWriter;
+    private final boolean _enabled;
+    private final int _maxSubscribers;
+    private final long _heartbeatMillis;
+    private final Path _temporaryDirectory;
+    private final EmployeeChangeJournal _journal;
+    private final ExecutorService _subscriberThreads;
+    private final AtomicInteger _subscribers = new AtomicInteger();
+    private final Counter _rejectedSubscribers;
+
+    public EmployeeChangeFeed(
+        ObjectMapper objectMapper,
+        MeterRegistry meterRegistry,
+        @Value("${app.changes.enabled}") boolean enabled,
+        @Value("${app.changes.journal-dir}") String journalDirectory,
+        @Value("${app.changes.segment-bytes}") int segmentBytes,
+        @Value("${app.changes.max-segments}") int maxSegments,
+        @Value("${app.changes.max-subscribers}") int maxSubscribers,
+        @Value("${app.changes.heartbeat-ms}") long heartbeatMillis
+    ) throws IOException {
+        this._employeeWriter = objectMapper.writerFor(EmployeeResponse.class);
+        this._enabled = enabled;
+        this._maxSubscribers = maxSubscribers;
+        this._heartbeatMillis = heartbeatMillis;
+
+        if (!enabled) {
+            this._temporaryDirectory = null;
+            this._journal = null;
+            this._subscriberThreads = null;
+        } else {
+            this._temporaryDirectory = journalDirectory.isBlank() ? Files.createTempDirectory("employee-changes") : null;
+            Path directory = journalDirectory.isBlank() ? _temporaryDirectory : Path.of(journalDirectory);
+            this._journal = new EmployeeChangeJournal(directory, segmentBytes, maxSegments);
+            AtomicInteger threads = new AtomicInteger();
+            this._subscriberThreads = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "employee-changes-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            Gauge.builder("employee.changes.journal.segments", _journal, EmployeeChangeJournal::getSegmentCount)
+                .description("Segment files in the employee change journal")
+                .register(meterRegistry);
+            LOG.info("Employee change journal in {}, after sequence {}", directory, _journal.getLastSequence());
+        }
+
+        Gauge.builder("employee.changes.subscribers", _subscribers, AtomicInteger::get)
+            .description("Clients subscribed to the employee change feed")
+            .register(meterRegistry);
+        this._rejectedSubscribers = Counter.builder("employee.changes.rejected.subscribers")
+            .description("Subscriptions refused because app.changes.max-subscribers were already subscribed")
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return _enabled;
+    }
+
+    public void publishCreated(EmployeeResponse employee) {
+        publish(ChangeType.CREATED, employee);
+    }
+
+    public void publishUpdated(EmployeeResponse employee) {
+        publish(ChangeType.UPDATED, employee);
+    }
+
+    public void publishCreated(List<EmployeeResponse> employees) {
+        employees.forEach(this::publishCreated);
+    }
+
+    /**
+     * Subscribes to the changes after the given sequence number, or from now on if it's null. An id
+     * the journal hasn't reached yet was handed out before it was reset, so it starts again from
+     * the beginning.
+     *
+     * @return the emitter to return from the request, or null if the feed is switched off or has
+     * as many subscribers as it is allowed
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        if (!_enabled) {
+            return null;
+        }
+        if (_subscribers.incrementAndGet() > _maxSubscribers) {
+            _subscribers.decrementAndGet();
+            _rejectedSubscribers.increment();
+            return null;
+        }
+
+        long lastSequence = _journal.getLastSequence();
+        long after = lastEventId == null ? lastSequence : lastEventId > lastSequence ? 0 : Math.max(0, lastEventId);
+
+        SseEmitter emitter = new SseEmitter();
+        Subscriber subscriber = new Subscriber(emitter, _journal.cursorAfter(after));
+        emitter.onCompletion(subscriber::stop);
+        emitter.onTimeout(subscriber::stop);
+        emitter.onError(error -> subscriber.stop());
+        try {
+            subscriber.start(_subscriberThreads.submit(subscriber::run));
+        } catch (RuntimeException e) {
+            _subscribers.decrementAndGet();
+            throw e;
+        }
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (!_enabled) {
+            return;
+        }
+
+        _subscriberThreads.shutdownNow();
+        _journal.close();
+        if (_temporaryDirectory != null) {
+            FileSystemUtils.deleteRecursively(_temporaryDirectory);
+        }
+    }
+
+    // The write has already committed, so a journal that can't be written to is logged rather than
+    // failing the request; subscribers just won't hear about this change.
+    private void publish(ChangeType type, EmployeeResponse employee) {
+        if (!_enabled) {
+            return;
+        }
+
+        try {
+            _journal.append(type, employee.getId(), employee.getVersion(), _employeeWriter.writeValueAsBytes(employee));
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Could not add the change to employee {} to the change journal", employee.getId(), e);
+        }
+    }
+
+    private class Subscriber {
+
+        private final SseEmitter _emitter;
+        private final EmployeeChangeJournal.Cursor _cursor;
+        private volatile Future<?> _thread;
+        private volatile boolean _stopped;
+
+        Subscriber(SseEmitter emitter, EmployeeChangeJournal.Cursor cursor) {
+            this._emitter = emitter;
+            this._cursor = cursor;
+        }
+
+        void start(Future<?> thread) {
+            _thread = thread;
+            if (_stopped) {
+                thread.cancel(true);
+            }
+        }
+
+        void stop() {
+            _stopped = true;
+            Future<?> thread = _thread;
+            if (thread != null) {
+                thread.cancel(true);
+            }
+        }
+
+        void run() {
+            try {
+                while (!_stopped) {
+                    List<Entry> entries = _cursor.next(SEND_BATCH_SIZE);
+                    for (Entry entry : entries) {
+                        // Blocks while the client isn't keeping up.
+                        _emitter.send(SseEmitter.event()
+                            .id(Long.toString(entry.getSequence()))
+                            .name(entry.getType().name().toLowerCase(Locale.ROOT))
+                            .data(new String(entry.getData(), StandardCharsets.UTF_8)));
+                    }
+                    if (entries.isEmpty() && !_journal.awaitAfter(_cursor.getLastSequence(), _heartbeatMillis)) {
+                        _emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException | UncheckedIOException e) {
+                // The client has gone, or the request has completed or timed out.
+                LOG.debug("Employee change subscriber stopped", e);
+            } finally {
+                _subscribers.decrementAndGet();
+                _emitter.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package scott.spring.webapisandbox.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of employee changes, numbered by a sequence that only goes up. Entries are
+ * written into memory-mapped segment files, so an append is a copy into the page cache and
+ * readers scan the same memory without any locking. When the active segment is full it is sealed
+ * and a new one started (rolled); once there are more than the configured number of sealed
+ * segments, they are compacted in the background into one that keeps only the latest change to
+ * each employee (the highest version, not the last appended, as concurrent writers can append
+ * out of order).
+ *
+ * Each entry is: data length (int), sequence (long), employee id (int), version (int), change
+ * type (byte), then the data. A zero length marks the end of a segment's entries. Segment files
+ * are named after their first sequence number, and reopening a directory carries on after the
+ * last entry found in it.
+ */
+public class EmployeeChangeJournal implements Closeable {
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmployeeChangeJournal.class);
+    private static final int HEADER_BYTES = 4 + 8 + 4 + 4 + 1;
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final ChangeType[] CHANGE_TYPES = ChangeType.values();
+
+    private final Path _directory;
+    private final int _segmentBytes;
+    private final int _maxSealedSegments;
+    private final ExecutorService _compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "employee-change-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Replaced as a whole (under the lock), never changed, so readers can use it without locking.
+    private volatile List<Segment> _segments;
+    private volatile long _lastSequence;
+
+    // Guarded by this.
+    private boolean _compacting;
+    private boolean _closed;
+
+    public EmployeeChangeJournal(Path directory, int segmentBytes, int maxSealedSegments) throws IOException {
+        this._directory = directory;
+        this._segmentBytes = segmentBytes;
+        this._maxSealedSegments = maxSealedSegments;
+
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing
+                .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .sorted(Comparator.comparingLong(EmployeeChangeJournal::firstSequenceOf))
+                .collect(Collectors.toList());
+        }
+
+        // Everything found is sealed; appending starts in a new segment.
+        List<Segment> segments = new ArrayList<>();
+        long lastSequence = 0;
+        for (Path file : files) {
+            Segment segment = firstSequenceOf(file) <= lastSequence ? null : Segment.open(file, firstSequenceOf(file));
+            if (segment == null || segment._end == 0) {
+                // Empty, or left behind by a compaction that stopped before removing what it replaced.
+                Files.delete(file);
+                continue;
+            }
+            segments.add(segment);
+            lastSequence = segment._lastSequence;
+        }
+
+        this._lastSequence = lastSequence;
+        segments.add(Segment.create(segmentPath(lastSequence + 1), lastSequence + 1, segmentBytes));
+        this._segments = List.copyOf(segments);
+
+        synchronized (this) {
+            compactIfDue();
+        }
+    }
+
+    public long getLastSequence() {
+        return _lastSequence;
+    }
+
+    public int getSegmentCount() {
+        return _segments.size();
+    }
+
+    /**
+     * Appends a change and returns its sequence number.
+     */
+    public synchronized long append(ChangeType type, int employeeId, int version, byte[] data) throws IOException {
+        if (_closed) {
+            throw new IllegalStateException("The employee change journal is closed");
+        }
+        int size = HEADER_BYTES + data.length;
+        if (data.length == 0 || size > _segmentBytes) {
+            throw new IllegalArgumentException(String.format("A journal entry must hold 1 to %d bytes of data", _segmentBytes - HEADER_BYTES));
+        }
+
+        Segment active = _segments.get(_segments.size() - 1);
+        if (active._end + size > active._buffer.capacity()) {
+            active = roll(active);
+        }
+
+        long sequence = _lastSequence + 1;
+        int at = active._end;
+        MappedByteBuffer buffer = active._buffer;
+        buffer.putInt(at, data.length);
+        buffer.putLong(at + 4, sequence);
+        buffer.putInt(at + 12, employeeId);
+        buffer.putInt(at + 16, version);
+        buffer.put(at + 20, (byte) type.ordinal());
+        buffer.put(at + HEADER_BYTES, data);
+
+        // Moving the end is what makes the entry visible to readers.
+        active._lastSequence = sequence;
+        active._end = at + size;
+        _lastSequence = sequence;
+        notifyAll();
+        return sequence;
+    }
+
+    /**
+     * Reads the entries after the given sequence number. A cursor is for one thread at a time.
+     */
+    public Cursor cursorAfter(long sequence) {
+        return new Cursor(sequence);
+    }
+
+    /**
+     * Waits until there is an entry after the given sequence number, for at most the given time.
+     *
+     * @return whether there is one
+     */
+    public synchronized boolean awaitAfter(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (_lastSequence <= sequence && !_closed) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return _lastSequence > sequence;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            _closed = true;
+            notifyAll();
+        }
+        _compactor.shutdownNow();
+        _segments.get(_segments.size() - 1)._buffer.force();
+    }
+
+    private Segment roll(Segment active) throws IOException {
+        active._buffer.force();
+        Segment next = Segment.create(segmentPath(_lastSequence + 1), _lastSequence + 1, _segmentBytes);
+
+        List<Segment> segments = new ArrayList<>(_segments);
+        segments.add(next);
+        _segments = List.copyOf(segments);
+        // Only once the next segment is listed, so a reader that sees this can move on to it.
+        active._sealed = true;
+
+        compactIfDue();
+        return next;
+    }
+
+    private void compactIfDue() {
+        int sealed = _segments.size() - 1;
+        if (_compacting || _closed || sealed <= _maxSealedSegments) {
+            return;
+        }
+
+        _compacting = true;
+        List<Segment> segments = _segments.subList(0, sealed);
+        _compactor.execute(() -> compact(segments));
+    }
+
+    private void compact(List<Segment> segments) {
+        try {
+            Map<Integer, Entry> latest = new HashMap<>();
+            for (Segment segment : segments) {
+                for (int at = 0; at < segment._end; ) {
+                    Entry entry = segment.read(at);
+                    latest.merge(entry.getEmployeeId(), entry, EmployeeChangeJournal::newer);
+                    at += entry.size();
+                }
+            }
+
+            List<Entry> kept = latest.values().stream().sorted(Comparator.comparingLong(Entry::getSequence)).collect(Collectors.toList());
+            Segment compacted = Segment.write(segmentPath(kept.get(0).getSequence()), kept);
+
+            synchronized (this) {
+                List<Segment> replaced = new ArrayList<>();
+                replaced.add(compacted);
+                replaced.addAll(_segments.subList(segments.size(), _segments.size()));
+                _segments = List.copyOf(replaced);
+            }
+            for (Segment segment : segments) {
+                segment._retired = true;
+                if (!segment._path.equals(compacted._path)) {
+                    Files.deleteIfExists(segment._path);
+                }
+            }
+            LOG.debug("Compacted {} journal segments into {} entries", segments.size(), kept.size());
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not compact the employee change journal", e);
+        } finally {
+            synchronized (this) {
+                _compacting = false;
+                // Segments may have rolled meanwhile.
+                compactIfDue();
+            }
+        }
+    }
+
+    private static Entry newer(Entry left, Entry right) {
+        if (left.getVersion() != right.getVersion()) {
+            return left.getVersion() > right.getVersion() ? left : right;
+        }
+        return left.getSequence() > right.getSequence() ? left : right;
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return _directory.resolve(String.format("%020d%s", firstSequence, SEGMENT_SUFFIX));
+    }
+
+    private static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    public static final class Entry {
+
+        private final long _sequence;
+        private final ChangeType _type;
+        private final int _employeeId;
+        private final int _version;
+        private final byte[] _data;
+
+        Entry(long sequence, ChangeType type, int employeeId, int version, byte[] data) {
+            this._sequence = sequence;
+            this._type = type;
+            this._employeeId = employeeId;
+            this._version = version;
+            this._data = data;
+        }
+
+        public long getSequence() {
+            return _sequence;
+        }
+
+        public ChangeType getType() {
+            return _type;
+        }
+
+        public int getEmployeeId() {
+            return _employeeId;
+        }
+
+        public int getVersion() {
+            return _version;
+        }
+
+        public byte[] getData() {
+            return _data;
+        }
+
+        int size() {
+            return HEADER_BYTES + _data.length;
+        }
+    }
+
+    /**
+     * A reader's place in the journal. It remembers the last sequence number it returned, so if
+     * its segment is compacted away it finds its place again in the compacted one.
+     */
+    public final class Cursor {
+
+        private long _after;
+        private Segment _segment;
+        private int _position;
+
+        private Cursor(long after) {
+            this._after = after;
+        }
+
+        public long getLastSequence() {
+            return _after;
+        }
+
+        /**
+         * Up to {@code max} entries after the last one returned, or none if there are no more yet.
+         */
+        public List<Entry> next(int max) {
+            List<Entry> entries = new ArrayList<>(Math.min(max, 64));
+            if (_segment == null || _segment._retired) {
+                seek();
+            }
+
+            while (entries.size() < max) {
+                if (_position < _segment._end) {
+                    Entry entry = _segment.read(_position);
+                    _position += entry.size();
+                    if (entry.getSequence() > _after) {
+                        entries.add(entry);
+                        _after = entry.getSequence();
+                    }
+                } else if (_segment._sealed) {
+                    List<Segment> segments = _segments;
+                    int index = segments.indexOf(_segment);
+                    if (index < 0) {
+                        seek();
+                    } else {
+                        _segment = segments.get(index + 1);
+                        _position = 0;
+                    }
+                } else {
+                    break;
+                }
+            }
+            return entries;
+        }
+
+        // The last segment starting at or before the next entry wanted (or the first there is).
+        private void seek() {
+            List<Segment> segments = _segments;
+            Segment found = segments.get(0);
+            for (Segment segment : segments) {
+                if (segment._firstSequence > _after + 1) {
+                    break;
+                }
+                found = segment;
+            }
+            _segment = found;
+            _position = 0;
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path _path;
+        private final long _firstSequence;
+        private final MappedByteBuffer _buffer;
+        private volatile int _end;
+        private volatile long _lastSequence;
+        private volatile boolean _sealed;
+        private volatile boolean _retired;
+
+        private Segment(Path path, long firstSequence, MappedByteBuffer buffer, boolean sealed) {
+            this._path = path;
+            this._firstSequence = firstSequence;
+            this._buffer = buffer;
+            this._lastSequence = firstSequence - 1;
+            this._sealed = sealed;
+        }
+
+        static Segment create(Path path, long firstSequence, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return new Segment(path, firstSequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), false);
+            }
+        }
+
+        static Segment open(Path path, long firstSequence) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                Segment segment = new Segment(path, firstSequence, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), true);
+                segment.findEnd();
+                return segment;
+            }
+        }
+
+        // Written to a temporary file and moved into place, so a file with a segment's name is always complete.
+        static Segment write(Path path, List<Entry> entries) throws IOException {
+            ByteBuffer content = ByteBuffer.allocate(entries.stream().mapToInt(Entry::size).sum());
+            for (Entry entry : entries) {
+                content.putInt(entry._data.length)
+                    .putLong(entry._sequence)
+                    .putInt(entry._employeeId)
+                    .putInt(entry._version)
+                    .put((byte) entry._type.ordinal())
+                    .put(entry._data);
+            }
+            content.flip();
+
+            Path temporary = path.resolveSibling(path.getFileName() + ".compacting");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (content.hasRemaining()) {
+                    channel.write(content);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return open(path, entries.get(0)._sequence);
+        }
+
+        Entry read(int at) {
+            int length = _buffer.getInt(at);
+            byte[] data = new byte[length];
+            _buffer.get(at + HEADER_BYTES, data);
+            return new Entry(_buffer.getLong(at + 4), CHANGE_TYPES[_buffer.get(at + 20)], _buffer.getInt(at + 12), _buffer.getInt(at + 16), data);
+        }
+
+        private void findEnd() {
+            int at = 0;
+            while (at + HEADER_BYTES <= _buffer.capacity()) {
+                int length = _buffer.getInt(at);
+                if (length <= 0 || at + HEADER_BYTES + length > _buffer.capacity()) {
+                    break;
+                }
+                _lastSequence = _buffer.getLong(at + 4);
+                at += HEADER_BYTES + length;
+            }
+            _end = at;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package scott.spring.webapisandbox.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import scott.spring.webapisandbox.exceptions.EmployeeNotFoundException;
+import scott.spring.webapisandbox.exceptions.EmployeeVersionConflictException;
+import scott.spring.webapisandbox.services.EmployeeShardRouter.ShardScope;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeCreateRequest;
+import scott.spring.webapisandbox.webapi.models.request.EmployeePatchRequest;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeUpdateRequest;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Group commit for single-employee creates and updates. With app.group-commit.enabled, callers
+ * queue their write and wait while one writer thread takes whatever is queued, waits up to
+ * app.group-commit.window-ms for more (up to app.group-commit.max-batch-size), and commits them
+ * all in one transaction through {@link EmployeeService#applyAll}. Under concurrent load that
+ * turns many commits, and log flushes, into one, at the cost of up to one window of latency.
+ *
+ * Each caller still gets its own result: a missing employee or a version conflict fails just
+ * that write. If the batch as a whole fails to commit, each of its writes is retried alone in
+ * its own transaction, so one bad write can't fail the others. When the table is sharded a
+ * batch is split by shard, and each part committed (or retried) on its own.
+ *
+ * Switched off, every call goes straight to {@link EmployeeService}.
+ */
+@Service
+public class EmployeeGroupCommitService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmployeeGroupCommitService.class);
+
+    private final EmployeeService _employeeService;
+    private final EmployeeShardRouter _shardRouter;
+    private final boolean _enabled;
+    private final int _maxBatchSize;
+    private final long _windowNanos;
+    private final BlockingQueue<PendingWrite> _queue = new LinkedBlockingQueue<>();
+    private final Thread _writer;
+
+    private final DistributionSummary _batchSize;
+    private final Timer _queueWait;
+    private final Timer _commitTime;
+    private final Counter _retriedBatches;
+
+    private volatile boolean _stopped;
+
+    public EmployeeGroupCommitService(
+        EmployeeService employeeService,
+        EmployeeShardRouter shardRouter,
+        MeterRegistry meterRegistry,
+        @Value("${app.group-commit.enabled}") boolean enabled,
+        @Value("${app.group-commit.max-batch-size}") int maxBatchSize,
+        @Value("${app.group-commit.window-ms}") long windowMs
+    ) {
+        this._employeeService = employeeService;
+        this._shardRouter = shardRouter;
+        this._enabled = enabled;
+        this._maxBatchSize = maxBatchSize;
+        this._windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+
+        this._batchSize = DistributionSummary.builder("employee.group.commit.batch.size")
+            .description("Writes committed together in one transaction")
+            .publishPercentileHistogram()
+            .maximumExpectedValue((long) maxBatchSize)
+            .register(meterRegistry);
+        this._queueWait = Timer.builder("employee.group.commit.queue.wait")
+            .description("Time a write waited for its batch to start")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this._commitTime = Timer.builder("employee.group.commit.duration")
+            .description("Time to run and commit one batch")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this._retriedBatches = Counter.builder("employee.group.commit.retried.batches")
+            .description("Batches that failed to commit and were retried one write at a time")
+            .register(meterRegistry);
+
+        this._writer = new Thread(this::run, "employee-group-commit");
+        this._writer.setDaemon(true);
+        if (enabled) {
+            this._writer.start();
+        }
+    }
+
+    public EmployeeResponse create(EmployeeCreateRequest employeeRequest) {
+        if (!_enabled) {
+            return _employeeService.create(employeeRequest);
+        }
+
+        try {
+            return submit(EmployeeWrite.create(_shardRouter.allocateId(), employeeRequest));
+        } catch (EmployeeNotFoundException | EmployeeVersionConflictException e) {
+            // A create never looks up an existing employee.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public EmployeeResponse update(Integer employeeId, EmployeeUpdateRequest employeeRequest)
+            throws EmployeeNotFoundException, EmployeeVersionConflictException {
+        return _enabled
+            ? submit(EmployeeWrite.update(employeeId, employeeRequest))
+            : _employeeService.update(employeeId, employeeRequest);
+    }
+
+    public EmployeeResponse patch(Integer employeeId, EmployeePatchRequest employeeRequest)
+            throws EmployeeNotFoundException, EmployeeVersionConflictException {
+        return _enabled
+            ? submit(EmployeeWrite.patch(employeeId, employeeRequest))
+            : _employeeService.patch(employeeId, employeeRequest);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        _stopped = true;
+        _writer.interrupt();
+
+        PendingWrite pending;
+        while ((pending = _queue.poll()) != null) {
+            pending._completion.completeExceptionally(new IllegalStateException("The application is shutting down"));
+        }
+    }
+
+    private EmployeeResponse submit(EmployeeWrite write) throws EmployeeNotFoundException, EmployeeVersionConflictException {
+        if (_stopped) {
+            throw new IllegalStateException("The application is shutting down");
+        }
+
+        PendingWrite pending = new PendingWrite(write);
+        _queue.add(pending);
+
+        try {
+            return pending._completion.get();
+        } catch (InterruptedException e) {
+            // The write may still be committed; the caller just won't hear about it.
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the write to commit", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof EmployeeNotFoundException) {
+                throw (EmployeeNotFoundException) cause;
+            }
+            if (cause instanceof EmployeeVersionConflictException) {
+                throw (EmployeeVersionConflictException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(_maxBatchSize);
+        while (!_stopped) {
+            try {
+                batch.add(_queue.take());
+
+                // Whatever is already queued joins at once; after that we wait out the window.
+                long deadline = System.nanoTime() + _windowNanos;
+                while (batch.size() < _maxBatchSize) {
+                    PendingWrite next = _queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                fail(batch, new IllegalStateException("The application is shutting down"));
+                return;
+            }
+
+            try {
+                commit(batch);
+            } catch (RuntimeException | Error e) {
+                LOG.error("Employee group commit failed", e);
+                fail(batch, e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void commit(List<PendingWrite> batch) {
+        long started = System.nanoTime();
+        List<EmployeeWrite> writes = new ArrayList<>(batch.size());
+        for (PendingWrite pending : batch) {
+            _queueWait.record(started - pending._queuedAt, TimeUnit.NANOSECONDS);
+            writes.add(pending._write);
+        }
+        _batchSize.record(batch.size());
+
+        Map<Integer, List<EmployeeWrite>> byShard = writes
+            .stream()
+            .collect(Collectors.groupingBy(write -> _shardRouter.shardOf(write.getEmployeeId()), TreeMap::new, Collectors.toList()));
+        for (Map.Entry<Integer, List<EmployeeWrite>> shardWrites : byShard.entrySet()) {
+            try (ShardScope shard = _shardRouter.useShard(shardWrites.getKey())) {
+                apply(shardWrites.getValue());
+            }
+        }
+        _commitTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+
+        for (PendingWrite pending : batch) {
+            EmployeeWrite write = pending._write;
+            if (write.getFailure() != null) {
+                pending._completion.completeExceptionally(write.getFailure());
+            } else {
+                pending._completion.complete(write.getResult());
+            }
+        }
+    }
+
+    private void apply(List<EmployeeWrite> writes) {
+        try {
+            _employeeService.applyAll(writes);
+        } catch (RuntimeException e) {
+            if (writes.size() == 1) {
+                writes.get(0).failed(e);
+            } else {
+                LOG.warn("Employee group commit of {} writes failed, retrying them one at a time", writes.size(), e);
+                _retriedBatches.increment();
+                for (EmployeeWrite write : writes) {
+                    try {
+                        _employeeService.applyAll(List.of(write));
+                    } catch (RuntimeException writeFailure) {
+                        write.failed(writeFailure);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void fail(List<PendingWrite> batch, Throwable failure) {
+        for (PendingWrite pending : batch) {
+            pending._completion.completeExceptionally(failure);
+        }
+    }
+
+    private static class PendingWrite {
+
+        private final EmployeeWrite _write;
+        private final long _queuedAt = System.nanoTime();
+        private final CompletableFuture<EmployeeResponse> _completion = new CompletableFuture<>();
+
+        PendingWrite(EmployeeWrite write) {
+            this._write = write;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package scott.spring.webapisandbox.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import scott.spring.webapisandbox.exceptions.EmployeeImportFormatException;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeCreateRequest;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeBatchCreateResponse;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeBatchErrorResponse;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeImportErrorResponse;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeImportResponse;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Bulk import of employees from NDJSON (one EmployeeCreateRequest object per line) or CSV (a
+ * header line naming the firstName and lastName columns, then one employee per line).
+ *
+ * The body is read a line at a time and every chunk of app.import.chunk-size valid records is
+ * written through {@link EmployeeService#createAll}, which validates them and inserts them in
+ * JDBC batches, in a transaction of its own. So memory use depends on the chunk size, not on the
+ * size of the body, and a failure part way through keeps the chunks already committed. Only the
+ * first app.import.max-errors errors are kept for the response; the rest are just counted.
+ * Each chunk's employees go to the {@link EmployeeChangeFeed} once it has committed.
+ */
+@Service
+public class EmployeeImportService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmployeeImportService.class);
+    private static final int MAX_LINE_LENGTH = 8192;
+    private static final long PROGRESS_LOG_INTERVAL = 100_000;
+
+    private final EmployeeService _employeeService;
+    private final EmployeeChangeFeed _employeeChangeFeed;
+    private final ObjectReader _requestReader;
+    private final int _chunkSize;
+    private final int _maxErrors;
+
+    public EmployeeImportService(
+        EmployeeService employeeService,
+        EmployeeChangeFeed employeeChangeFeed,
+        ObjectMapper objectMapper,
+        @Value("${app.import.chunk-size}") int chunkSize,
+        @Value("${app.import.max-errors}") int maxErrors
+    ) {
+        this._employeeService = employeeService;
+        this._employeeChangeFeed = employeeChangeFeed;
+        this._requestReader = objectMapper.readerFor(EmployeeCreateRequest.class);
+        this._chunkSize = chunkSize;
+        this._maxErrors = maxErrors;
+    }
+
+    public EmployeeImportResponse importNdjson(Reader body) throws IOException {
+        Import employeeImport = new Import();
+        LineReader lines = new LineReader(body);
+
+        String line;
+        while ((line = lines.next()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            if (lines.isTruncated()) {
+                employeeImport.fail(lines.getLineNumber(), "The line is longer than " + MAX_LINE_LENGTH + " characters");
+                continue;
+            }
+
+            try {
+                employeeImport.add(lines.getLineNumber(), _requestReader.readValue(line));
+            } catch (JsonProcessingException e) {
+                employeeImport.fail(lines.getLineNumber(), "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+
+        return employeeImport.finish();
+    }
+
+    public EmployeeImportResponse importCsv(Reader body) throws IOException, EmployeeImportFormatException {
+        Import employeeImport = new Import();
+        LineReader lines = new LineReader(body);
+
+        String header = lines.next();
+        while (header != null && header.isBlank()) {
+            header = lines.next();
+        }
+        if (header == null) {
+            return employeeImport.finish();
+        }
+
+        int firstNameColumn = -1;
+        int lastNameColumn = -1;
+        List<String> columns = parseHeader(header);
+        for (int i = 0; i < columns.size(); i++) {
+            String column = columns.get(i).strip().toLowerCase(Locale.ROOT);
+            if (column.equals("firstname")) {
+                firstNameColumn = i;
+            } else if (column.equals("lastname")) {
+                lastNameColumn = i;
+            }
+        }
+        if (firstNameColumn < 0 || lastNameColumn < 0) {
+            throw new EmployeeImportFormatException("The CSV header must name the firstName and lastName columns");
+        }
+
+        String line;
+        while ((line = lines.next()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            if (lines.isTruncated()) {
+                employeeImport.fail(lines.getLineNumber(), "The line is longer than " + MAX_LINE_LENGTH + " characters");
+                continue;
+            }
+
+            try {
+                List<String> fields = Csv.parseLine(line);
+                employeeImport.add(lines.getLineNumber(), new EmployeeCreateRequest(
+                    field(fields, firstNameColumn),
+                    field(fields, lastNameColumn)
+                ));
+            } catch (IllegalArgumentException e) {
+                employeeImport.fail(lines.getLineNumber(), "Invalid CSV: " + e.getMessage());
+            }
+        }
+
+        return employeeImport.finish();
+    }
+
+    private static List<String> parseHeader(String header) throws EmployeeImportFormatException {
+        try {
+            return Csv.parseLine(header);
+        } catch (IllegalArgumentException e) {
+            throw new EmployeeImportFormatException("Invalid CSV header: " + e.getMessage());
+        }
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column < fields.size() ? fields.get(column) : null;
+    }
+
+    /**
+     * Counts and errors for one import, and the chunk of records waiting to be written.
+     */
+    private class Import {
+
+        private final List<EmployeeCreateRequest> _chunk = new ArrayList<>(_chunkSize);
+        private final List<Long> _chunkLineNumbers = new ArrayList<>(_chunkSize);
+        private final List<EmployeeImportErrorResponse> _errors = new ArrayList<>();
+        private long _recordCount;
+        private long _importedCount;
+        private long _failedCount;
+
+        void add(long lineNumber, EmployeeCreateRequest employeeRequest) {
+            _recordCount++;
+            _chunk.add(employeeRequest);
+            _chunkLineNumbers.add(lineNumber);
+            if (_chunk.size() >= _chunkSize) {
+                writeChunk();
+            }
+        }
+
+        void fail(long lineNumber, String message) {
+            _recordCount++;
+            addError(lineNumber, List.of(message));
+        }
+
+        EmployeeImportResponse finish() {
+            writeChunk();
+            LOG.info("Employee import finished: {} records, {} imported, {} failed", _recordCount, _importedCount, _failedCount);
+            return new EmployeeImportResponse(_recordCount, _importedCount, _failedCount, _errors, _failedCount > _errors.size());
+        }
+
+        private void writeChunk() {
+            if (_chunk.isEmpty()) {
+                return;
+            }
+
+            long processedBefore = _importedCount + _failedCount;
+            EmployeeBatchCreateResponse result = _employeeService.createAll(_chunk);
+            _employeeChangeFeed.publishCreated(result.getCreated());
+            _importedCount += result.getCreated().size();
+            for (EmployeeBatchErrorResponse error : result.getErrors()) {
+                addError(_chunkLineNumbers.get(error.getIndex()), error.getMessages());
+            }
+            _chunk.clear();
+            _chunkLineNumbers.clear();
+
+            if (processedBefore / PROGRESS_LOG_INTERVAL != (_importedCount + _failedCount) / PROGRESS_LOG_INTERVAL) {
+                LOG.info("Employee import in progress: {} records, {} imported, {} failed", _recordCount, _importedCount, _failedCount);
+            }
+        }
+
+        private void addError(long lineNumber, List<String> messages) {
+            _failedCount++;
+            if (_errors.size() < _maxErrors) {
+                _errors.add(new EmployeeImportErrorResponse(lineNumber, messages));
+            }
+        }
+    }
+
+    /**
+     * Reads lines (ending in \n or \r\n) without ever holding more than MAX_LINE_LENGTH characters
+     * of one; the rest of a longer line is skipped and the line is marked as truncated.
+     */
+    private static class LineReader {
+
+        private final BufferedReader _reader;
+        private final StringBuilder _line = new StringBuilder();
+        private long _lineNumber;
+        private boolean _truncated;
+
+        LineReader(Reader reader) {
+            this._reader = new BufferedReader(reader);
+        }
+
+        String next() throws IOException {
+            _line.setLength(0);
+            _truncated = false;
+
+            int c = _reader.read();
+            if (c < 0) {
+                return null;
+            }
+            while (c >= 0 && c != '\n') {
+                if (_line.length() < MAX_LINE_LENGTH) {
+                    _line.append((char) c);
+                } else {
+                    _truncated = true;
+                }
+                c = _reader.read();
+            }
+
+            _lineNumber++;
+            int length = _line.length();
+            if (length > 0 && _line.charAt(length - 1) == '\r') {
+                _line.setLength(length - 1);
+            }
+            return _line.toString();
+        }
+
+        long getLineNumber() {
+            return _lineNumber;
+        }
+
+        boolean isTruncated() {
+            return _truncated;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package scott.spring.webapisandbox.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import scott.spring.webapisandbox.config.ReplicaRoutingDataSource;
+import scott.spring.webapisandbox.repositories.EmployeeRepository;
+import scott.spring.webapisandbox.services.EmployeeShardRouter.ShardScope;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Coalesces employee lookups by id from the database. With app.coalescing.enabled, a lookup is
+ * queued rather than run: one thread takes whatever is queued, waits up to app.coalescing.window-ms
+ * for more (up to app.coalescing.max-batch-size distinct ids), and reads them all with one IN query
+ * (one per shard when sharded) on a pool of app.coalescing.parallelism threads. Lookups of an id
+ * that is already queued share the queued one rather than adding another.
+ *
+ * Sharing stops once the batch is sent: a lookup that comes in while the query is running waits for
+ * the next batch rather than taking a result that may have been read before it arrived. So unlike
+ * the cache this never returns anything older than the request, and it can be used on its own for
+ * data that must not be stale. The cost is up to one window of latency. Likewise a batch is read
+ * from the primary if any of its lookups came from a thread pinned there.
+ *
+ * The employee.loader.* metrics count lookups, those that shared another's, and queries run; the
+ * coalescing ratio is lookups per query.
+ *
+ * Switched off, each lookup is its own query.
+ */
+@Service
+public class EmployeeLoader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmployeeLoader.class);
+
+    private final EmployeeRepository _employeeRepository;
+    private final EmployeeShardRouter _shardRouter;
+    private final boolean _enabled;
+    private final int _maxBatchSize;
+    private final long _windowNanos;
+
+    private final Map<Integer, Lookup> _queued = new ConcurrentHashMap<>();
+    private final BlockingQueue<Integer> _queue = new LinkedBlockingQueue<>();
+    private final Thread _batcher;
+    private final ExecutorService _queryExecutor;
+
+    private final Counter _lookups;
+    private final Counter _sharedLookups;
+    private final Counter _queries;
+    private final DistributionSummary _batchSize;
+
+    private volatile boolean _stopped;
+
+    public EmployeeLoader(
+        EmployeeRepository employeeRepository,
+        EmployeeShardRouter shardRouter,
+        MeterRegistry meterRegistry,
+        @Value("${app.coalescing.enabled}") boolean enabled,
+        @Value("${app.coalescing.max-batch-size}") int maxBatchSize,
+        @Value("${app.coalescing.window-ms}") long windowMs,
+        @Value("${app.coalescing.parallelism}") int parallelism
+    ) {
+        this._employeeRepository = employeeRepository;
+        this._shardRouter = shardRouter;
+        this._enabled = enabled;
+        this._maxBatchSize = maxBatchSize;
+        this._windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+
+        this._lookups = Counter.builder("employee.loader.lookups")
+            .description("Employee lookups by id")
+            .register(meterRegistry);
+        this._sharedLookups = Counter.builder("employee.loader.shared.lookups")
+            .description("Lookups that shared one already queued for the same id")
+            .register(meterRegistry);
+        this._queries = Counter.builder("employee.loader.queries")
+            .description("Queries run for lookups")
+            .register(meterRegistry);
+        this._batchSize = DistributionSummary.builder("employee.loader.batch.size")
+            .description("Distinct ids read by one query")
+            .publishPercentileHistogram()
+            .maximumExpectedValue((long) maxBatchSize)
+            .register(meterRegistry);
+        Gauge.builder("employee.loader.coalescing.ratio", this, loader -> loader._lookups.count() / Math.max(1, loader._queries.count()))
+            .description("Lookups per query since startup")
+            .register(meterRegistry);
+
+        AtomicInteger threads = new AtomicInteger();
+        this._queryExecutor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "employee-loader-query-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this._batcher = new Thread(this::run, "employee-loader");
+        this._batcher.setDaemon(true);
+        if (enabled) {
+            this._batcher.start();
+        }
+    }
+
+    public Optional<EmployeeResponse> load(Integer employeeId) {
+        _lookups.increment();
+        if (!_enabled) {
+            _queries.increment();
+            try (ShardScope shard = _shardRouter.useShardOf(employeeId)) {
+                return _employeeRepository.findResponseById(employeeId);
+            }
+        }
+        if (_stopped) {
+            throw new IllegalStateException("The employee loader has been shut down");
+        }
+
+        // Sharing is atomic with the batcher taking the lookup, so a pin added here is seen by its batch.
+        boolean pinned = ReplicaRoutingDataSource.isPinnedToPrimary();
+        Lookup created = new Lookup(pinned);
+        Lookup lookup = _queued.compute(employeeId, (id, queued) -> queued == null ? created : queued.share(pinned));
+        if (lookup != created) {
+            _sharedLookups.increment();
+            return EmployeeShardRouter.join(lookup._result);
+        }
+
+        _queue.add(employeeId);
+        if (_stopped) {
+            // Shut down while this was being queued, so nothing may be left to take it.
+            lookup._result.completeExceptionally(new IllegalStateException("The employee loader has been shut down"));
+        }
+        return EmployeeShardRouter.join(lookup._result);
+    }
+
+    /**
+     * Stops batching and fails every lookup that hasn't been answered: those still queued, those in
+     * batches waiting for a query thread, and (if the interrupted query gives up) those being read.
+     */
+    @PreDestroy
+    public void shutdown() {
+        _stopped = true;
+        _batcher.interrupt();
+
+        IllegalStateException stopped = new IllegalStateException("The employee loader has been shut down");
+        for (Runnable waiting : _queryExecutor.shutdownNow()) {
+            ((BatchQuery) waiting).fail(stopped);
+        }
+        _queued.values().forEach(lookup -> lookup._result.completeExceptionally(stopped));
+    }
+
+    private void run() {
+        while (!_stopped) {
+            Map<Integer, Lookup> batch;
+            try {
+                batch = nextBatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            BatchQuery query = new BatchQuery(batch);
+            try {
+                _queryExecutor.execute(query);
+            } catch (RejectedExecutionException e) {
+                LOG.warn("Employee loader could not send a batch of {} ids", batch.size(), e);
+                query.fail(e);
+            }
+        }
+    }
+
+    // Blocks for the first id, then collects more until the window closes or the batch is full.
+    private Map<Integer, Lookup> nextBatch() throws InterruptedException {
+        Map<Integer, Lookup> batch = new LinkedHashMap<>();
+        Integer employeeId = _queue.take();
+        long deadline = System.nanoTime() + _windowNanos;
+        while (employeeId != null) {
+            batch.put(employeeId, _queued.get(employeeId));
+            if (batch.size() >= _maxBatchSize) {
+                break;
+            }
+            long remaining = deadline - System.nanoTime();
+            employeeId = remaining > 0 ? _queue.poll(remaining, TimeUnit.NANOSECONDS) : _queue.poll();
+        }
+
+        // From here on a lookup of one of these ids queues a new one, so it is read after it arrived.
+        batch.forEach(_queued::remove);
+        return batch;
+    }
+
+    private void query(Map<Integer, Lookup> batch) {
+        _batchSize.record(batch.size());
+        Map<Integer, List<Integer>> idsByShard = batch.keySet()
+            .stream()
+            .collect(Collectors.groupingBy(_shardRouter::shardOf, TreeMap::new, Collectors.toList()));
+
+        for (Map.Entry<Integer, List<Integer>> shardIds : idsByShard.entrySet()) {
+            List<Integer> ids = shardIds.getValue();
+            try {
+                List<EmployeeResponse> found;
+                try (ShardScope shard = _shardRouter.useShard(shardIds.getKey())) {
+                    _queries.increment();
+                    found = ids.size() == 1
+                        ? _employeeRepository.findResponseById(ids.get(0)).map(List::of).orElse(List.of())
+                        : _employeeRepository.findResponsesByIdIn(ids);
+                }
+
+                Map<Integer, EmployeeResponse> byId = new HashMap<>();
+                found.forEach(employee -> byId.put(employee.getId(), employee));
+                for (Integer id : ids) {
+                    batch.get(id)._result.complete(Optional.ofNullable(byId.get(id)));
+                }
+            } catch (RuntimeException e) {
+                ids.forEach(id -> batch.get(id)._result.completeExceptionally(e));
+            }
+        }
+    }
+
+    private final class BatchQuery implements Runnable {
+
+        private final Map<Integer, Lookup> _batch;
+
+        BatchQuery(Map<Integer, Lookup> batch) {
+            this._batch = batch;
+        }
+
+        @Override
+        public void run() {
+            boolean pinned = _batch.values().stream().anyMatch(lookup -> lookup._pinned);
+            try {
+                ReplicaRoutingDataSource.withPinning(pinned, () -> {
+                    query(_batch);
+                    return null;
+                });
+            } finally {
+                // Nothing is left waiting, whatever escaped the query (an interrupt, say).
+                fail(new IllegalStateException("The employee loader could not read this batch"));
+            }
+        }
+
+        void fail(Throwable cause) {
+            _batch.values().forEach(lookup -> lookup._result.completeExceptionally(cause));
+        }
+    }
+
+    // A queued lookup, and whether any thread sharing it is pinned to the primary.
+    private static final class Lookup {
+
+        private final CompletableFuture<Optional<EmployeeResponse>> _result = new CompletableFuture<>();
+        private volatile boolean _pinned;
+
+        Lookup(boolean pinned) {
+            this._pinned = pinned;
+        }
+
+        Lookup share(boolean pinned) {
+            if (pinned) {
+                _pinned = true;
+            }
+            return this;
+        }
+    }
+}
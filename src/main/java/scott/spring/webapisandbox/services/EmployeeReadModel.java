@@ -0,0 +1,322 @@
+package scott.spring.webapisandbox.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Service;
+import scott.spring.webapisandbox.config.ReplicaRoutingDataSource;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optional (app.read-model.enabled) in-memory copy of every employee, which GET /api/employee and
+ * GET /api/employee/{id} are served from instead of the database once it has loaded.
+ *
+ * It is laid out by column rather than as objects: employees are indexed directly by id in blocks
+ * of 4096, each block holding an int array of versions and int arrays of references into a table
+ * of names, in which each distinct name appears once. That is 12 bytes an employee plus the names,
+ * against a boxed id, an object and two strings each for a map of responses.
+ *
+ * Blocks are never changed once readers can see them: a write copies the blocks it touches and
+ * swaps in a new block table, so readers never lock or wait. It is loaded in the background once
+ * the application is ready (reads go to the database until then), a keyset page at a time, and
+ * kept current with the writes made through the API after they commit (before the change counter
+ * moves, so the list ETag is never newer than the model). If two writes to an
+ * employee arrive out of order, the higher version is kept. Employees missing from it are looked up
+ * in the database and added, which picks up rows written some other way; it doesn't otherwise
+ * notice changes made outside this application.
+ */
+@Service
+public class EmployeeReadModel implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmployeeReadModel.class);
+    private static final int BLOCK_SHIFT = 12;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    private static final int ABSENT = -1;
+    private static final int LOAD_PAGE_SIZE = 4096;
+
+    private final EmployeeShardRouter _shardRouter;
+    private final boolean _enabled;
+    private volatile Columns _columns = new Columns(new Block[0], new String[0], 0);
+    private volatile boolean _loaded;
+    private final Object _loadLock = new Object();
+
+    // Guarded by this. The name table only grows (a name nobody has any more stays in it), and
+    // readers only look at entries that existed when their columns were published.
+    private final Map<String, Integer> _nameRefs = new HashMap<>();
+    private String[] _names = new String[1024];
+    private int _nameCount;
+
+    public EmployeeReadModel(
+        EmployeeShardRouter shardRouter,
+        MeterRegistry meterRegistry,
+        @Value("${app.read-model.enabled}") boolean enabled
+    ) {
+        this._shardRouter = shardRouter;
+        this._enabled = enabled;
+
+        if (enabled) {
+            Gauge.builder("employee.read.model.employees", this, EmployeeReadModel::size)
+                .description("Employees held in the in-memory read model")
+                .register(meterRegistry);
+            Gauge.builder("employee.read.model.bytes", this, EmployeeReadModel::estimateBytes)
+                .description("Estimated heap used by the in-memory read model")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!_enabled) {
+            return;
+        }
+
+        Thread loader = new Thread(() -> {
+            try {
+                load();
+            } catch (RuntimeException e) {
+                LOG.error("Could not load the employee read model; reads will keep going to the database", e);
+            }
+        }, "employee-read-model");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Whether reads can be served from here: enabled, and loaded.
+     */
+    public boolean isLoaded() {
+        return _loaded;
+    }
+
+    public int size() {
+        return _columns._count;
+    }
+
+    /**
+     * Reads every employee from the database into the model, keeping anything newer that was
+     * written meanwhile.
+     *
+     * @return the number of employees read
+     */
+    public int load() {
+        synchronized (_loadLock) {
+            // Read from the primary: a lagging replica would leave out recent writes, and the model
+            // would keep serving without them.
+            return ReplicaRoutingDataSource.onPrimary(this::loadPages);
+        }
+    }
+
+    // Writes carry on meanwhile; only the page being added holds them up.
+    private int loadPages() {
+        long started = System.nanoTime();
+        int loaded = 0;
+        List<EmployeeResponse> page;
+        Integer afterId = 0;
+        do {
+            page = _shardRouter.findPage(afterId, LOAD_PAGE_SIZE);
+            putAll(page);
+            loaded += page.size();
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+        _loaded = _enabled;
+
+        long bytes = estimateBytes();
+        LOG.info("Loaded {} employees into the read model in {} ms: about {} KiB, {} bytes per employee",
+            loaded, (System.nanoTime() - started) / 1_000_000, bytes / 1024, loaded == 0 ? 0 : bytes / loaded);
+        return loaded;
+    }
+
+    public EmployeeResponse getById(int employeeId) {
+        Columns columns = _columns;
+        Block block = blockOf(columns, employeeId);
+        int slot = employeeId & BLOCK_MASK;
+        return block == null || block._versions[slot] == ABSENT ? null : block.toResponse(employeeId, slot, columns._names);
+    }
+
+    /**
+     * Just the employee's version, or null if it isn't here; nothing is allocated for it.
+     */
+    public Integer getVersion(int employeeId) {
+        Block block = blockOf(_columns, employeeId);
+        int version = block == null ? ABSENT : block._versions[employeeId & BLOCK_MASK];
+        return version == ABSENT ? null : version;
+    }
+
+    private static Block blockOf(Columns columns, int employeeId) {
+        int blockIndex = employeeId >>> BLOCK_SHIFT;
+        return employeeId < 0 || blockIndex >= columns._blocks.length ? null : columns._blocks[blockIndex];
+    }
+
+    /**
+     * Every employee, in id order.
+     */
+    public List<EmployeeResponse> getAll() {
+        Columns columns = _columns;
+        List<EmployeeResponse> employees = new ArrayList<>(columns._count);
+        for (int blockIndex = 0; blockIndex < columns._blocks.length; blockIndex++) {
+            Block block = columns._blocks[blockIndex];
+            if (block == null) {
+                continue;
+            }
+            for (int slot = 0; slot < BLOCK_SIZE; slot++) {
+                if (block._versions[slot] != ABSENT) {
+                    employees.add(block.toResponse((blockIndex << BLOCK_SHIFT) | slot, slot, columns._names));
+                }
+            }
+        }
+        return employees;
+    }
+
+    public void put(EmployeeResponse employee) {
+        putAll(Collections.singletonList(employee));
+    }
+
+    /**
+     * Adds or replaces the given employees, unless the model already has a higher version of one.
+     */
+    public void putAll(Collection<EmployeeResponse> employees) {
+        if (!_enabled || employees.isEmpty()) {
+            return;
+        }
+
+        synchronized (this) {
+            Columns current = _columns;
+            int maxBlock = employees.stream().mapToInt(employee -> employee.getId() >>> BLOCK_SHIFT).max().getAsInt();
+            Block[] blocks = Arrays.copyOf(current._blocks, Math.max(current._blocks.length, maxBlock + 1));
+            Set<Block> copied = Collections.newSetFromMap(new IdentityHashMap<>());
+            int count = current._count;
+
+            for (EmployeeResponse employee : employees) {
+                int id = employee.getId();
+                int version = employee.getVersion() == null ? 0 : employee.getVersion();
+                int blockIndex = id >>> BLOCK_SHIFT;
+                int slot = id & BLOCK_MASK;
+
+                Block block = blocks[blockIndex];
+                if (block != null && block._versions[slot] > version) {
+                    continue;
+                }
+                if (block == null || !copied.contains(block)) {
+                    block = block == null ? new Block() : block.copy();
+                    blocks[blockIndex] = block;
+                    copied.add(block);
+                }
+
+                if (block._versions[slot] == ABSENT) {
+                    count++;
+                }
+                block._versions[slot] = version;
+                block._firstNames[slot] = nameRef(employee.getFirstName());
+                block._lastNames[slot] = nameRef(employee.getLastName());
+            }
+
+            _columns = new Columns(blocks, _names, count);
+        }
+    }
+
+    /**
+     * Approximate heap used, assuming compressed object pointers and names of one byte a character.
+     */
+    public long estimateBytes() {
+        Columns columns = _columns;
+        long bytes = arrayBytes(columns._blocks.length, 4);
+        for (Block block : columns._blocks) {
+            if (block != null) {
+                bytes += 24 + 3 * arrayBytes(BLOCK_SIZE, 4);
+            }
+        }
+
+        synchronized (this) {
+            bytes += arrayBytes(_names.length, 4);
+            for (int i = 0; i < _nameCount; i++) {
+                // The string and its bytes, plus its entry in the name lookup (node and table slot).
+                bytes += 24 + arrayBytes(_names[i].length(), 1) + 32 + 16 + 8;
+            }
+        }
+        return bytes;
+    }
+
+    private int nameRef(String name) {
+        if (name == null) {
+            return ABSENT;
+        }
+
+        Integer ref = _nameRefs.get(name);
+        if (ref == null) {
+            if (_nameCount == _names.length) {
+                _names = Arrays.copyOf(_names, _names.length * 2);
+            }
+            ref = _nameCount++;
+            _names[ref] = name;
+            _nameRefs.put(name, ref);
+        }
+        return ref;
+    }
+
+    private static long arrayBytes(int length, int elementBytes) {
+        return (16 + (long) length * elementBytes + 7) & ~7L;
+    }
+
+    private static final class Columns {
+
+        private final Block[] _blocks;
+        private final String[] _names;
+        private final int _count;
+
+        Columns(Block[] blocks, String[] names, int count) {
+            this._blocks = blocks;
+            this._names = names;
+            this._count = count;
+        }
+    }
+
+    private static final class Block {
+
+        private final int[] _versions;
+        private final int[] _firstNames;
+        private final int[] _lastNames;
+
+        Block() {
+            this._versions = new int[BLOCK_SIZE];
+            this._firstNames = new int[BLOCK_SIZE];
+            this._lastNames = new int[BLOCK_SIZE];
+            Arrays.fill(_versions, ABSENT);
+        }
+
+        private Block(Block block) {
+            this._versions = block._versions.clone();
+            this._firstNames = block._firstNames.clone();
+            this._lastNames = block._lastNames.clone();
+        }
+
+        Block copy() {
+            return new Block(this);
+        }
+
+        EmployeeResponse toResponse(int employeeId, int slot, String[] names) {
+            return new EmployeeResponse(employeeId, name(_firstNames[slot], names), name(_lastNames[slot], names), _versions[slot]);
+        }
+
+        private static String name(int ref, String[] names) {
+            return ref == ABSENT ? null : names[ref];
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package scott.spring.webapisandbox.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import scott.spring.webapisandbox.config.ReplicaRoutingDataSource;
+import scott.spring.webapisandbox.exceptions.EmployeeNotFoundException;
+import scott.spring.webapisandbox.exceptions.EmployeeVersionConflictException;
+import scott.spring.webapisandbox.models.Employee;
+import scott.spring.webapisandbox.repositories.EmployeeRepository;
+import scott.spring.webapisandbox.services.EmployeeShardRouter.ShardScope;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeCreateRequest;
+import scott.spring.webapisandbox.webapi.models.request.EmployeePatchRequest;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeUpdateRequest;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeBatchCreateResponse;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeBatchErrorResponse;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Single-employee reads and writes. Reads go through the {@link EmployeeCache}, and writes refresh
+ * the cached entry with the saved state once they commit; entries are merged by version, so
+ * readers never see a value older than the last write made through this service. When the table is sharded each of them runs on the employee's shard
+ * (see {@link EmployeeShardRouter}). Once the {@link EmployeeReadModel} (if enabled) has loaded,
+ * getById and getAll are answered from it. getById's database reads go through the
+ * {@link EmployeeLoader}, which can coalesce concurrent ones.
+ */
+@Service
+public class EmployeeService {
+
+    private final EmployeeRepository _employeeRepository;
+    private final EmployeeShardRouter _shardRouter;
+    private final EmployeeChangeCounter _changeCounter;
+    private final EmployeeReadModel _readModel;
+    private final EmployeeCache _cache;
+    private final EmployeeLoader _employeeLoader;
+    private final Validator _validator;
+    private final int _multiGetChunkSize;
+    private final ExecutorService _multiGetExecutor;
+
+    public EmployeeService(
+        EmployeeRepository employeeRepository,
+        EmployeeShardRouter shardRouter,
+        EmployeeChangeCounter changeCounter,
+        EmployeeReadModel readModel,
+        EmployeeCache cache,
+        EmployeeLoader employeeLoader,
+        Validator validator,
+        @Value("${app.multi-get.chunk-size}") int multiGetChunkSize,
+        @Value("${app.multi-get.parallelism}") int multiGetParallelism
+    ) {
+        this._employeeRepository = employeeRepository;
+        this._shardRouter = shardRouter;
+        this._changeCounter = changeCounter;
+        this._readModel = readModel;
+        this._cache = cache;
+        this._employeeLoader = employeeLoader;
+        this._validator = validator;
+        this._multiGetChunkSize = multiGetChunkSize;
+
+        AtomicInteger threads = new AtomicInteger();
+        this._multiGetExecutor = Executors.newFixedThreadPool(multiGetParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "employee-multi-get-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Optional<EmployeeResponse> getById(Integer employeeId) {
+        EmployeeResponse cached = _cache.get(employeeId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        EmployeeResponse employee = _readModel.isLoaded() ? _readModel.getById(employeeId) : null;
+        if (employee == null) {
+            employee = _employeeLoader.load(employeeId).orElse(null);
+            if (employee == null) {
+                return Optional.empty();
+            }
+            _readModel.put(employee);
+        }
+        _cache.put(employee);
+        return Optional.of(employee);
+    }
+
+    /**
+     * The employees with the given ids, by id; ids with no employee are left out. They are read
+     * with IN queries of at most app.multi-get.chunk-size ids each (on the ids' own shards when
+     * sharded), and when there is more than one query they run in parallel. Ids the read model
+     * has are answered from it.
+     */
+    public Map<Integer, EmployeeResponse> getAllById(Collection<Integer> employeeIds) {
+        Map<Integer, EmployeeResponse> found = new HashMap<>(employeeIds.size() * 2);
+        List<Integer> remaining = new ArrayList<>(employeeIds.size());
+        for (Integer employeeId : employeeIds) {
+            EmployeeResponse employee = _readModel.isLoaded() ? _readModel.getById(employeeId) : null;
+            if (employee != null) {
+                found.put(employeeId, employee);
+            } else {
+                remaining.add(employeeId);
+            }
+        }
+
+        Map<Integer, List<Integer>> idsByShard = remaining
+            .stream()
+            .collect(Collectors.groupingBy(_shardRouter::shardOf, TreeMap::new, Collectors.toList()));
+        List<Supplier<List<EmployeeResponse>>> queries = new ArrayList<>();
+        for (Map.Entry<Integer, List<Integer>> shardIds : idsByShard.entrySet()) {
+            int shard = shardIds.getKey();
+            List<Integer> ids = shardIds.getValue();
+            for (int start = 0; start < ids.size(); start += _multiGetChunkSize) {
+                List<Integer> chunk = ids.subList(start, Math.min(start + _multiGetChunkSize, ids.size()));
+                queries.add(() -> {
+                    try (ShardScope scope = _shardRouter.useShard(shard)) {
+                        return _employeeRepository.findResponsesByIdIn(chunk);
+                    }
+                });
+            }
+        }
+
+        List<EmployeeResponse> queried;
+        if (queries.size() == 1) {
+            queried = queries.get(0).get();
+        } else {
+            List<CompletableFuture<List<EmployeeResponse>>> results = queries
+                .stream()
+                .map(query -> CompletableFuture.supplyAsync(ReplicaRoutingDataSource.supplyWithCallersPinning(query), _multiGetExecutor))
+                .collect(Collectors.toList());
+            queried = results.stream().map(EmployeeShardRouter::join).flatMap(List::stream).collect(Collectors.toList());
+        }
+        for (EmployeeResponse employee : queried) {
+            found.put(employee.getId(), employee);
+        }
+        _readModel.putAll(queried);
+        return found;
+    }
+
+    /**
+     * Case-insensitive prefix search on first or last name. Each name has its own index, so rather
+     * than one OR query (which would scan the table) we take the first {@code limit} matches from
+     * each index and merge them, ordered by the matching name and then id. Sharded, each shard
+     * does the same and their matches are merged in that order first.
+     */
+    public List<EmployeeResponse> search(String query, int limit) {
+        String pattern = escapeLike(Employee.toSearchKey(query.strip())) + "%";
+        PageRequest page = PageRequest.of(0, limit);
+
+        List<EmployeeResponse> byFirstName = mergeShards(
+            _shardRouter.onEveryShard(() -> _employeeRepository.findResponsesByFirstNamePrefix(pattern, page)), EmployeeResponse::getFirstName);
+        List<EmployeeResponse> byLastName = mergeShards(
+            _shardRouter.onEveryShard(() -> _employeeRepository.findResponsesByLastNamePrefix(pattern, page)), EmployeeResponse::getLastName);
+
+        List<EmployeeResponse> results = new ArrayList<>(Math.min(limit, byFirstName.size() + byLastName.size()));
+        Set<Integer> seen = new HashSet<>();
+        int first = 0;
+        int last = 0;
+        while (results.size() < limit && (first < byFirstName.size() || last < byLastName.size())) {
+            EmployeeResponse next;
+            if (last >= byLastName.size() || (first < byFirstName.size()
+                    && compareMatches(Employee.toSearchKey(byFirstName.get(first).getFirstName()), byFirstName.get(first),
+                                      Employee.toSearchKey(byLastName.get(last).getLastName()), byLastName.get(last)) <= 0)) {
+                next = byFirstName.get(first++);
+            } else {
+                next = byLastName.get(last++);
+            }
+
+            if (seen.add(next.getId())) {
+                results.add(next);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * The employee's version, for answering conditional requests without loading the employee:
+     * from the read model once it has loaded, otherwise by reading only the version column.
+     */
+    public Optional<Integer> getVersion(Integer employeeId) {
+        Integer version = _readModel.isLoaded() ? _readModel.getVersion(employeeId) : null;
+        if (version != null) {
+            return Optional.of(version);
+        }
+
+        try (ShardScope shard = _shardRouter.useShardOf(employeeId)) {
+            return _employeeRepository.findVersionById(employeeId);
+        }
+    }
+
+    /**
+     * Every employee, in id order.
+     */
+    public List<EmployeeResponse> getAll() {
+        if (_readModel.isLoaded()) {
+            return _readModel.getAll();
+        }
+        return _shardRouter.findAll();
+    }
+
+    /**
+     * Keyset page: up to {@code limit} employees with an id greater than the given one, in id order.
+     */
+    public List<EmployeeResponse> getPage(Integer afterId, int limit) {
+        return _shardRouter.findPage(afterId, limit);
+    }
+
+    public EmployeeResponse create(EmployeeCreateRequest employeeRequest) {
+        Integer employeeId = _shardRouter.allocateId();
+        try (ShardScope shard = _shardRouter.useShardOf(employeeId)) {
+            return insert(employeeId, employeeRequest);
+        }
+    }
+
+    // The shard is chosen before the first statement, which is when the transaction gets its connection.
+    @Transactional
+    public EmployeeResponse update(Integer employeeId, EmployeeUpdateRequest employeeRequest)
+            throws EmployeeNotFoundException, EmployeeVersionConflictException {
+        try (ShardScope shard = _shardRouter.useShardOf(employeeId)) {
+            return applyUpdate(employeeId, employeeRequest.getVersion(), employeeRequest.getFirstName(), employeeRequest.getLastName());
+        }
+    }
+
+    @Transactional
+    public EmployeeResponse patch(Integer employeeId, EmployeePatchRequest employeeRequest)
+            throws EmployeeNotFoundException, EmployeeVersionConflictException {
+        try (ShardScope shard = _shardRouter.useShardOf(employeeId)) {
+            return applyUpdate(employeeId, employeeRequest.getVersion(), employeeRequest.getFirstName(), employeeRequest.getLastName());
+        }
+    }
+
+    /**
+     * Runs each write in turn in one transaction, for group commit. A write that fails because the
+     * employee is missing or has moved on records that failure and the rest carry on; any other
+     * exception rolls back the lot. The cache and read model take the writes once they commit.
+     *
+     * When sharded every write must belong to the same shard, and the caller must be using it.
+     */
+    @Transactional
+    public void applyAll(List<EmployeeWrite> writes) {
+        for (EmployeeWrite write : writes) {
+            try {
+                write.succeeded(write.isCreate()
+                    ? insert(write.getEmployeeId(), write.getCreateRequest())
+                    : applyUpdate(write.getEmployeeId(), write.getExpectedVersion(), write.getFirstName(), write.getLastName()));
+            } catch (EmployeeNotFoundException | EmployeeVersionConflictException e) {
+                write.failed(e);
+            }
+        }
+    }
+
+    // A null id is left to Hibernate to take from the sequence as it inserts.
+    private EmployeeResponse insert(Integer employeeId, EmployeeCreateRequest employeeRequest) {
+        Employee employee = new Employee(
+                employeeId,
+                employeeRequest.getFirstName(),
+                employeeRequest.getLastName()
+        );
+        if (employeeId == null) {
+            employee = _employeeRepository.save(employee);
+        } else {
+            _employeeRepository.insertWithIds(List.of(employee));
+        }
+
+        EmployeeResponse response = EmployeeResponse.FromEmployee(employee);
+        recordChange(List.of(response));
+        return response;
+    }
+
+    /**
+     * Writes the change with one UPDATE statement. When the caller gave the version and every
+     * column, that statement is all we need to build the response; otherwise the new state is
+     * read back with a projection query. Only when nothing was updated do we look again to tell
+     * a missing employee apart from a version conflict.
+     */
+    private EmployeeResponse applyUpdate(Integer employeeId, Integer expectedVersion, String firstName, String lastName)
+            throws EmployeeNotFoundException, EmployeeVersionConflictException {
+        int updated = _employeeRepository.updateEmployee(employeeId, expectedVersion, firstName, lastName);
+
+        if (updated == 0) {
+            if (expectedVersion != null && _employeeRepository.existsById(employeeId)) {
+                throw new EmployeeVersionConflictException(
+                    String.format("Employee %d has been modified since version %d", employeeId, expectedVersion));
+            }
+            throw new EmployeeNotFoundException(String.format("Employee %d does not exist", employeeId));
+        }
+
+        if (expectedVersion != null && firstName != null && lastName != null) {
+            EmployeeResponse response = new EmployeeResponse(employeeId, firstName, lastName, expectedVersion + 1);
+            recordChange(List.of(response));
+            return response;
+        }
+
+        Optional<EmployeeResponse> response = _employeeRepository.findResponseById(employeeId);
+        recordChange(response.map(List::of).orElse(List.of()));
+        return response.orElseThrow(() -> new EmployeeNotFoundException(String.format("Employee %d does not exist", employeeId)));
+    }
+
+    /**
+     * Validates every request, then inserts the valid ones in a single transaction. Hibernate
+     * groups the inserts into JDBC batches (hibernate.jdbc.batch_size) and the pooled id generator
+     * on {@link Employee} means ids for the whole batch come from a handful of sequence calls.
+     *
+     * Sharded, it is one transaction per shard, so a failure on one shard doesn't undo the
+     * inserts already committed on another.
+     */
+    public EmployeeBatchCreateResponse createAll(List<EmployeeCreateRequest> employeeRequests) {
+        List<Employee> employees = new ArrayList<>(employeeRequests.size());
+        List<EmployeeBatchErrorResponse> errors = new ArrayList<>();
+
+        for (int i = 0; i < employeeRequests.size(); i++) {
+            EmployeeCreateRequest employeeRequest = employeeRequests.get(i);
+            if (employeeRequest == null) {
+                errors.add(new EmployeeBatchErrorResponse(i, List.of("The employee must be specified")));
+                continue;
+            }
+
+            Set<ConstraintViolation<EmployeeCreateRequest>> violations = _validator.validate(employeeRequest);
+            if (!violations.isEmpty()) {
+                List<String> messages = violations
+                    .stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.toList());
+                errors.add(new EmployeeBatchErrorResponse(i, messages));
+                continue;
+            }
+
+            employees.add(new Employee(
+                    _shardRouter.allocateId(),
+                    employeeRequest.getFirstName(),
+                    employeeRequest.getLastName()
+            ));
+        }
+
+        List<EmployeeResponse> created = new ArrayList<>(employees.size());
+        Map<Integer, List<Employee>> byShard = employees
+            .stream()
+            .collect(Collectors.groupingBy(employee -> _shardRouter.shardOf(employee.getId()), TreeMap::new, Collectors.toList()));
+        for (Map.Entry<Integer, List<Employee>> shardEmployees : byShard.entrySet()) {
+            try (ShardScope shard = _shardRouter.useShard(shardEmployees.getKey())) {
+                List<Employee> saved = shardEmployees.getValue();
+                if (_shardRouter.isSharded()) {
+                    _employeeRepository.insertWithIds(saved);
+                } else {
+                    saved = _employeeRepository.saveAll(saved);
+                }
+                saved.stream().map(EmployeeResponse::FromEmployee).forEach(created::add);
+            }
+        }
+        if (_shardRouter.isSharded()) {
+            created.sort(Comparator.comparing(EmployeeResponse::getId));
+        }
+        if (!created.isEmpty()) {
+            recordChange(created);
+        }
+
+        return new EmployeeBatchCreateResponse(created, errors);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        _multiGetExecutor.shutdownNow();
+    }
+
+    // Once the write commits the cache and read model take it, and then the counter moves: so
+    // anyone who sees the new ETag also sees the new data.
+    private void recordChange(List<EmployeeResponse> changed) {
+        _changeCounter.recordChange(() -> {
+            _cache.putAll(changed);
+            _readModel.putAll(changed);
+        });
+    }
+
+    // Each shard's matches are already in order; together they are sorted the same way.
+    private static List<EmployeeResponse> mergeShards(List<List<EmployeeResponse>> shardMatches, Function<EmployeeResponse, String> name) {
+        if (shardMatches.size() == 1) {
+            return shardMatches.get(0);
+        }
+
+        return shardMatches
+            .stream()
+            .flatMap(List::stream)
+            .sorted(Comparator.<EmployeeResponse, String>comparing(employee -> Employee.toSearchKey(name.apply(employee)))
+                .thenComparing(EmployeeResponse::getId))
+            .collect(Collectors.toList());
+    }
+
+    private static int compareMatches(String leftKey, EmployeeResponse left, String rightKey, EmployeeResponse right) {
+        int byKey = leftKey.compareTo(rightKey);
+        return byKey != 0 ? byKey : left.getId().compareTo(right.getId());
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
@@ -0,0 +1,124 @@
+package scott.spring.webapisandbox.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import scott.spring.webapisandbox.models.Employee;
+import scott.spring.webapisandbox.repositories.EmployeeRepository;
+import scott.spring.webapisandbox.services.EmployeeShardRouter.ShardScope;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Moves employees to the shard they belong to after shards have been added to
+ * app.sharding.shards; thanks to the consistent hashing in {@link EmployeeShardRouter} that is
+ * only the rows that now belong to a new shard. It is an offline tool: started with
+ * app.sharding.rebalance=true the application rebalances once it is ready and then exits, and it
+ * shouldn't be taking requests meanwhile, since rows not yet moved aren't where it looks for them.
+ *
+ * Each shard is read a keyset page at a time, and the misplaced rows of a page are copied (with
+ * their ids and versions) before the originals are deleted. If it stops part way a row is at
+ * worst on two shards, and running it again finishes the job: copies that are already there are
+ * not written again.
+ */
+@Component
+@ConditionalOnProperty(name = "app.sharding.shards")
+public class EmployeeShardRebalancer implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmployeeShardRebalancer.class);
+    private static final int PAGE_SIZE = 500;
+
+    private final EmployeeRepository _employeeRepository;
+    private final EmployeeShardRouter _shardRouter;
+    private final boolean _rebalanceOnStartup;
+
+    public EmployeeShardRebalancer(
+        EmployeeRepository employeeRepository,
+        EmployeeShardRouter shardRouter,
+        @Value("${app.sharding.rebalance}") boolean rebalanceOnStartup
+    ) {
+        this._employeeRepository = employeeRepository;
+        this._shardRouter = shardRouter;
+        this._rebalanceOnStartup = rebalanceOnStartup;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!_rebalanceOnStartup) {
+            return;
+        }
+
+        int exitCode = 0;
+        try {
+            int moved = rebalance();
+            LOG.info("Rebalanced {} shards, moving {} employees", _shardRouter.getShardCount(), moved);
+        } catch (RuntimeException e) {
+            LOG.error("Rebalancing failed; running it again will carry on where it stopped", e);
+            exitCode = 1;
+        }
+
+        int code = exitCode;
+        System.exit(SpringApplication.exit(event.getApplicationContext(), () -> code));
+    }
+
+    /**
+     * @return the number of employees moved
+     */
+    public int rebalance() {
+        int moved = 0;
+        for (int shard = 0; shard < _shardRouter.getShardCount(); shard++) {
+            int shardMoved = 0;
+            Integer afterId = 0;
+            List<EmployeeResponse> page;
+            do {
+                Integer pageAfterId = afterId;
+                try (ShardScope source = _shardRouter.useShard(shard)) {
+                    page = _employeeRepository.findResponsesByIdGreaterThan(pageAfterId, PageRequest.of(0, PAGE_SIZE));
+                }
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                    shardMoved += move(shard, page);
+                }
+            } while (page.size() == PAGE_SIZE);
+
+            if (shardMoved > 0) {
+                LOG.info("Moved {} employees off shard {}", shardMoved, shard);
+            }
+            moved += shardMoved;
+        }
+        return moved;
+    }
+
+    private int move(int shard, List<EmployeeResponse> page) {
+        Map<Integer, List<Employee>> misplaced = page
+            .stream()
+            .filter(employee -> _shardRouter.shardOf(employee.getId()) != shard)
+            .map(employee -> new Employee(employee.getId(), employee.getFirstName(), employee.getLastName(), employee.getVersion()))
+            .collect(Collectors.groupingBy(employee -> _shardRouter.shardOf(employee.getId()), TreeMap::new, Collectors.toList()));
+        if (misplaced.isEmpty()) {
+            return 0;
+        }
+
+        for (Map.Entry<Integer, List<Employee>> target : misplaced.entrySet()) {
+            try (ShardScope copy = _shardRouter.useShard(target.getKey())) {
+                _employeeRepository.copyMissing(target.getValue());
+            }
+        }
+
+        List<Integer> ids = misplaced.values().stream().flatMap(List::stream).map(Employee::getId).collect(Collectors.toList());
+        try (ShardScope source = _shardRouter.useShard(shard)) {
+            _employeeRepository.deleteByIdIn(ids);
+        }
+        return ids.size();
+    }
+}
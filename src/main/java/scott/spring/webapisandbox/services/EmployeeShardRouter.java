@@ -0,0 +1,329 @@
+package scott.spring.webapisandbox.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import scott.spring.webapisandbox.config.ReplicaRoutingDataSource;
+import scott.spring.webapisandbox.config.ShardRoutingDataSource;
+import scott.spring.webapisandbox.models.EmployeeIdBlock;
+import scott.spring.webapisandbox.repositories.EmployeeRepository;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Where employee rows live when the table is sharded (app.sharding.shards, see
+ * {@link scott.spring.webapisandbox.config.ShardingConfig}). Each id belongs to one shard, picked
+ * by jump consistent hashing, so reading, updating or creating an employee touches exactly one
+ * shard, and adding a shard only moves the rows that now belong to it
+ * ({@link EmployeeShardRebalancer}). Ids still come from the one sequence on the first shard, a
+ * block at a time, so they are unique across shards.
+ *
+ * Reads that span every shard run on each of them in parallel and are merged. The full list is a
+ * merge of per-shard keyset pages in id order, each shard fetching its next page while the
+ * current one is being used, so it streams without holding any shard's rows in memory.
+ *
+ * Unsharded there is a single shard, and everything runs inline, straight through to the
+ * repository.
+ */
+@Component
+public class EmployeeShardRouter {
+
+    private static final int PAGE_SIZE = 500;
+    private static final ShardScope NO_SHARD = new ShardScope(null);
+
+    private final EmployeeRepository _employeeRepository;
+    private final int _shardCount;
+    private final ExecutorService _executor;
+
+    // Guarded by this: the block of ids taken from the sequence that hasn't been handed out yet.
+    private final EmployeeIdBlock _idBlock = new EmployeeIdBlock();
+
+    public EmployeeShardRouter(EmployeeRepository employeeRepository, @Value("${app.sharding.shards:}") String[] shardUrls) {
+        this._employeeRepository = employeeRepository;
+        this._shardCount = Math.max(1, (int) Arrays.stream(shardUrls).filter(url -> !url.isBlank()).count());
+
+        AtomicInteger threads = new AtomicInteger();
+        this._executor = _shardCount == 1 ? null : Executors.newFixedThreadPool(2 * _shardCount, runnable -> {
+            Thread thread = new Thread(runnable, "employee-shard-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isSharded() {
+        return _shardCount > 1;
+    }
+
+    public int getShardCount() {
+        return _shardCount;
+    }
+
+    public int shardOf(Integer employeeId) {
+        return employeeId == null ? 0 : shardOf(employeeId, _shardCount);
+    }
+
+    /**
+     * Jump consistent hash (Lamping and Veach): going from n to n + 1 shards moves only the ids
+     * that land on the new shard, about 1 in n + 1, and none between the existing ones.
+     */
+    public static int shardOf(int employeeId, int shardCount) {
+        long key = employeeId;
+        long shard = -1;
+        long next = 0;
+        while (next < shardCount) {
+            shard = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((shard + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) shard;
+    }
+
+    /**
+     * The id for a new employee, or null when unsharded (Hibernate then takes one from the
+     * sequence as it inserts).
+     */
+    public synchronized Integer allocateId() {
+        if (!isSharded()) {
+            return null;
+        }
+
+        Integer id = _idBlock.next();
+        if (id != null) {
+            return id;
+        }
+        try (ShardScope shard = useShard(0)) {
+            return _idBlock.start(_employeeRepository.nextIdSequenceValue());
+        }
+    }
+
+    /**
+     * Sends this thread's connections to the given shard until the scope is closed. A
+     * transaction stays on the shard it runs its first statement on, so call this before then;
+     * switching to another shard within a scope is refused.
+     */
+    public ShardScope useShard(int shard) {
+        if (!isSharded()) {
+            return NO_SHARD;
+        }
+
+        Integer current = ShardRoutingDataSource.getCurrentShard();
+        if (current != null && current != shard) {
+            throw new IllegalStateException(String.format("Already working on shard %d, so can't switch to shard %d", current, shard));
+        }
+        ShardRoutingDataSource.setCurrentShard(shard);
+        return new ShardScope(current);
+    }
+
+    public ShardScope useShardOf(Integer employeeId) {
+        return useShard(shardOf(employeeId));
+    }
+
+    /**
+     * Runs the query on every shard in parallel, and returns the results in shard order.
+     */
+    public <T> List<T> onEveryShard(Supplier<T> query) {
+        if (!isSharded()) {
+            return List.of(query.get());
+        }
+
+        List<CompletableFuture<T>> results = new ArrayList<>(_shardCount);
+        for (int shard = 0; shard < _shardCount; shard++) {
+            results.add(onShardAsync(shard, query));
+        }
+        return results.stream().map(EmployeeShardRouter::join).collect(Collectors.toList());
+    }
+
+    /**
+     * Every employee, in id order.
+     */
+    public List<EmployeeResponse> findAll() {
+        if (!isSharded()) {
+            return _employeeRepository.findAllResponses();
+        }
+
+        try (Stream<EmployeeResponse> employees = streamAll()) {
+            return employees.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Every employee, in id order. Unsharded this is the repository's stream, which must be
+     * consumed inside a transaction; either way it must be closed afterwards.
+     */
+    public Stream<EmployeeResponse> streamAll() {
+        if (!isSharded()) {
+            return _employeeRepository.streamAllResponses();
+        }
+
+        List<ShardCursor> cursors = new ArrayList<>(_shardCount);
+        for (int shard = 0; shard < _shardCount; shard++) {
+            cursors.add(new ShardCursor(shard));
+        }
+        Iterator<EmployeeResponse> merged = new MergingIterator(cursors);
+        return StreamSupport
+            .stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(() -> cursors.forEach(ShardCursor::cancel));
+    }
+
+    /**
+     * Up to {@code limit} employees with an id greater than the given one, in id order.
+     */
+    public List<EmployeeResponse> findPage(Integer afterId, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        if (!isSharded()) {
+            return _employeeRepository.findResponsesByIdGreaterThan(afterId, page);
+        }
+
+        return onEveryShard(() -> _employeeRepository.findResponsesByIdGreaterThan(afterId, page))
+            .stream()
+            .flatMap(List::stream)
+            .sorted(Comparator.comparing(EmployeeResponse::getId))
+            .limit(limit)
+            .collect(Collectors.toList());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (_executor != null) {
+            _executor.shutdownNow();
+        }
+    }
+
+    private <T> CompletableFuture<T> onShardAsync(int shard, Supplier<T> query) {
+        return CompletableFuture.supplyAsync(ReplicaRoutingDataSource.supplyWithCallersPinning(() -> {
+            try (ShardScope scope = useShard(shard)) {
+                return query.get();
+            }
+        }), _executor);
+    }
+
+    static <T> T join(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Restores the shard the thread was using before, if any, when closed.
+     */
+    public static final class ShardScope implements AutoCloseable {
+
+        private final Integer _previous;
+
+        private ShardScope(Integer previous) {
+            this._previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (this != NO_SHARD) {
+                ShardRoutingDataSource.setCurrentShard(_previous);
+            }
+        }
+    }
+
+    /**
+     * One shard's rows, a keyset page at a time, with the next page always on its way.
+     */
+    private class ShardCursor {
+
+        private final int _shard;
+        private List<EmployeeResponse> _page = List.of();
+        private int _index;
+        private CompletableFuture<List<EmployeeResponse>> _nextPage;
+
+        ShardCursor(int shard) {
+            this._shard = shard;
+            this._nextPage = fetchAfter(0);
+        }
+
+        // Waits for the next page if this one is used up; false once the shard has no more rows.
+        boolean hasRow() {
+            if (_index < _page.size()) {
+                return true;
+            }
+            if (_nextPage == null) {
+                return false;
+            }
+
+            _page = join(_nextPage);
+            _index = 0;
+            _nextPage = _page.size() < PAGE_SIZE ? null : fetchAfter(_page.get(_page.size() - 1).getId());
+            return !_page.isEmpty();
+        }
+
+        EmployeeResponse peek() {
+            return _page.get(_index);
+        }
+
+        EmployeeResponse take() {
+            return _page.get(_index++);
+        }
+
+        void cancel() {
+            if (_nextPage != null) {
+                _nextPage.cancel(false);
+            }
+        }
+
+        private CompletableFuture<List<EmployeeResponse>> fetchAfter(int id) {
+            return onShardAsync(_shard, () -> _employeeRepository.findResponsesByIdGreaterThan(id, PageRequest.of(0, PAGE_SIZE)));
+        }
+    }
+
+    private static class MergingIterator implements Iterator<EmployeeResponse> {
+
+        private final PriorityQueue<ShardCursor> _cursors = new PriorityQueue<>(Comparator.comparing(cursor -> cursor.peek().getId()));
+
+        MergingIterator(List<ShardCursor> cursors) {
+            for (ShardCursor cursor : cursors) {
+                if (cursor.hasRow()) {
+                    _cursors.add(cursor);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !_cursors.isEmpty();
+        }
+
+        @Override
+        public EmployeeResponse next() {
+            ShardCursor cursor = _cursors.poll();
+            if (cursor == null) {
+                throw new NoSuchElementException();
+            }
+
+            EmployeeResponse next = cursor.take();
+            if (cursor.hasRow()) {
+                _cursors.add(cursor);
+            }
+            return next;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package scott.spring.webapisandbox.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The full employee list as it was at one change-counter value, already serialized as JSON and
+ * gzip-compressed. The byte arrays are shared by every request that serves the snapshot, so they
+ * must never be modified.
+ */
+@Getter
+@AllArgsConstructor
+public class EmployeeSnapshot {
+
+    private final String eTag;
+    private final byte[] json;
+    private final byte[] gzip;
+
+    /**
+     * The gzip bytes are a different representation from the plain JSON, so they get their own
+     * strong ETag.
+     */
+    public String getGzipETag() {
+        return eTag.substring(0, eTag.length() - 1) + "-gzip\"";
+    }
+}
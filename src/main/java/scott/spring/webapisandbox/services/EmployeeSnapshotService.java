@@ -0,0 +1,120 @@
+package scott.spring.webapisandbox.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import scott.spring.webapisandbox.config.ReplicaRoutingDataSource;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the serialized GET /api/employee response ready to write, so reads (which far outnumber
+ * writes) skip the query, the mapping and the JSON encoding.
+ *
+ * The snapshot is rebuilt on a single background thread after each committed change, and swapped
+ * in atomically once complete. Readers never wait for a rebuild: they get the previous snapshot
+ * until then, with the ETag it was built under, so conditional requests stay consistent with the
+ * bytes served. Changes that arrive during a rebuild are coalesced into one more rebuild.
+ *
+ * No snapshot exists until the first request asks for one; that request (and any others before
+ * the first build completes) is answered the ordinary way.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class EmployeeSnapshotService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmployeeSnapshotService.class);
+
+    private final EmployeeShardRouter _shardRouter;
+    private final EmployeeChangeCounter _changeCounter;
+    private final ObjectMapper _objectMapper;
+    private final ExecutorService _rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "employee-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicReference<EmployeeSnapshot> _snapshot = new AtomicReference<>();
+    private final AtomicBoolean _rebuildPending = new AtomicBoolean();
+
+    public EmployeeSnapshotService(EmployeeShardRouter shardRouter, EmployeeChangeCounter changeCounter, ObjectMapper objectMapper) {
+        _shardRouter = shardRouter;
+        _changeCounter = changeCounter;
+        _objectMapper = objectMapper;
+
+        _changeCounter.addListener(this::onChange);
+    }
+
+    /**
+     * The latest complete snapshot, or null if none has been built yet (in which case one is
+     * started).
+     */
+    public EmployeeSnapshot getSnapshot() {
+        EmployeeSnapshot snapshot = _snapshot.get();
+        if (snapshot == null) {
+            requestRebuild();
+        }
+        return snapshot;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        _rebuildExecutor.shutdownNow();
+    }
+
+    private void onChange() {
+        // Until someone has asked for a snapshot there is nothing to keep fresh; this keeps bulk
+        // imports from rebuilding one after every chunk when nobody reads the full list.
+        if (_snapshot.get() != null) {
+            requestRebuild();
+        }
+    }
+
+    void requestRebuild() {
+        // At most one rebuild is queued; it reads the data after it starts, so it covers every
+        // change made before then.
+        if (_rebuildPending.compareAndSet(false, true)) {
+            _rebuildExecutor.execute(this::rebuild);
+        }
+    }
+
+    private void rebuild() {
+        _rebuildPending.set(false);
+        // A rebuild follows a change, which a replica might not have yet; and its ETag must not be
+        // newer than its data.
+        ReplicaRoutingDataSource.setPinnedToPrimary(true);
+
+        try {
+            // The ETag is read before the data, as in EmployeeController.getAll: a change landing in
+            // between queues another rebuild, and a snapshot's data is never older than its ETag.
+            String eTag = _changeCounter.getETag();
+            List<EmployeeResponse> employees = _shardRouter.findAll();
+            byte[] json = _objectMapper.writeValueAsBytes(employees);
+
+            _snapshot.set(new EmployeeSnapshot(eTag, json, gzip(json)));
+        } catch (RuntimeException | IOException e) {
+            LOG.warn("Could not rebuild the employee snapshot; serving the previous one", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 4 + 64);
+        // Compressed once per change and served many times, so spend the CPU on the best ratio.
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+            gzip.write(data);
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,110 @@
+package scott.spring.webapisandbox.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the whole employee table out as a JSON array, as NDJSON or as CSV, one row at a time, so
+ * memory use does not grow with the number of employees. When sharded the rows are merged from
+ * every shard as they are written (see {@link EmployeeShardRouter#streamAll}).
+ */
+@Service
+public class EmployeeStreamService {
+
+    private static final int FLUSH_INTERVAL = 500;
+
+    private final EmployeeShardRouter _shardRouter;
+    private final ObjectMapper _objectMapper;
+
+    public EmployeeStreamService(EmployeeShardRouter shardRouter, ObjectMapper objectMapper) {
+        this._shardRouter = shardRouter;
+        this._objectMapper = objectMapper;
+    }
+
+    @Transactional(readOnly = true)
+    public void writeAllAsJson(OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = _objectMapper.getFactory().createGenerator(outputStream);
+             Stream<EmployeeResponse> employees = _shardRouter.streamAll()) {
+
+            generator.writeStartArray();
+
+            int written = 0;
+            Iterator<EmployeeResponse> iterator = employees.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(iterator.next());
+
+                // Rows are projected straight into responses, so nothing builds up in the persistence
+                // context; just push what we have written out to the client every so often.
+                if (++written % FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * One JSON object per line, in the format the NDJSON import reads.
+     */
+    @Transactional(readOnly = true)
+    public void writeAllAsNdjson(OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = _objectMapper.getFactory().createGenerator(outputStream);
+             Stream<EmployeeResponse> employees = _shardRouter.streamAll()) {
+
+            int written = 0;
+            Iterator<EmployeeResponse> iterator = employees.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(iterator.next());
+                generator.writeRaw('\n');
+
+                if (++written % FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * A header line (id,firstName,lastName,version) and then one line per employee, in the format
+     * the CSV import reads.
+     */
+    @Transactional(readOnly = true)
+    public void writeAllAsCsv(OutputStream outputStream) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+             Stream<EmployeeResponse> employees = _shardRouter.streamAll()) {
+
+            writer.write("id,firstName,lastName,version\n");
+
+            int written = 0;
+            StringBuilder row = new StringBuilder();
+            Iterator<EmployeeResponse> iterator = employees.iterator();
+            while (iterator.hasNext()) {
+                EmployeeResponse employee = iterator.next();
+                row.setLength(0);
+                row.append(employee.getId()).append(',');
+                Csv.appendField(row, employee.getFirstName());
+                row.append(',');
+                Csv.appendField(row, employee.getLastName());
+                row.append(',').append(employee.getVersion()).append('\n');
+                writer.append(row);
+
+                if (++written % FLUSH_INTERVAL == 0) {
+                    writer.flush();
+                }
+            }
+        }
+    }
+}
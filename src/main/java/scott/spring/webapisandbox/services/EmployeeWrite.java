@@ -0,0 +1,89 @@
+package scott.spring.webapisandbox.services;
+
+import scott.spring.webapisandbox.webapi.models.request.EmployeeCreateRequest;
+import scott.spring.webapisandbox.webapi.models.request.EmployeePatchRequest;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeUpdateRequest;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+/**
+ * One create or update queued for group commit, and its outcome once
+ * {@link EmployeeService#applyAll} has run it: either the saved employee or the exception it
+ * failed with.
+ */
+public final class EmployeeWrite {
+
+    private final EmployeeCreateRequest _createRequest;
+    private final Integer _employeeId;
+    private final Integer _expectedVersion;
+    private final String _firstName;
+    private final String _lastName;
+
+    private EmployeeResponse _result;
+    private Exception _failure;
+
+    private EmployeeWrite(EmployeeCreateRequest createRequest, Integer employeeId, Integer expectedVersion, String firstName, String lastName) {
+        this._createRequest = createRequest;
+        this._employeeId = employeeId;
+        this._expectedVersion = expectedVersion;
+        this._firstName = firstName;
+        this._lastName = lastName;
+    }
+
+    /**
+     * A create, with the id already chosen when the table is sharded (so the write can be sent to
+     * its shard), or null to take one from the sequence.
+     */
+    public static EmployeeWrite create(Integer employeeId, EmployeeCreateRequest employeeRequest) {
+        return new EmployeeWrite(employeeRequest, employeeId, null, null, null);
+    }
+
+    public static EmployeeWrite update(Integer employeeId, EmployeeUpdateRequest employeeRequest) {
+        return new EmployeeWrite(null, employeeId, employeeRequest.getVersion(), employeeRequest.getFirstName(), employeeRequest.getLastName());
+    }
+
+    public static EmployeeWrite patch(Integer employeeId, EmployeePatchRequest employeeRequest) {
+        return new EmployeeWrite(null, employeeId, employeeRequest.getVersion(), employeeRequest.getFirstName(), employeeRequest.getLastName());
+    }
+
+    public boolean isCreate() {
+        return _createRequest != null;
+    }
+
+    public EmployeeResponse getResult() {
+        return _result;
+    }
+
+    public Exception getFailure() {
+        return _failure;
+    }
+
+    EmployeeCreateRequest getCreateRequest() {
+        return _createRequest;
+    }
+
+    Integer getEmployeeId() {
+        return _employeeId;
+    }
+
+    Integer getExpectedVersion() {
+        return _expectedVersion;
+    }
+
+    String getFirstName() {
+        return _firstName;
+    }
+
+    String getLastName() {
+        return _lastName;
+    }
+
+    void succeeded(EmployeeResponse result) {
+        _result = result;
+        _failure = null;
+    }
+
+    void failed(Exception failure) {
+        _result = null;
+        _failure = failure;
+    }
+}
@@ -0,0 +1,139 @@
+package scott.spring.webapisandbox.services;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import scott.spring.webapisandbox.exceptions.EmployeeNotFoundException;
+import scott.spring.webapisandbox.exceptions.EmployeeVersionConflictException;
+import scott.spring.webapisandbox.repositories.ReactiveEmployeeRepository;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeCreateRequest;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeUpdateRequest;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeBatchCreateResponse;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeBatchErrorResponse;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking counterpart of {@link EmployeeService} for the reactive API. It has the same
+ * update semantics (404 for a missing employee, 409 for a stale version) but no employee cache:
+ * reads are already non-blocking, and a cache shared with the blocking service would only matter
+ * if both stacks served requests at once, which they never do.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveEmployeeService {
+
+    private final ReactiveEmployeeRepository _employeeRepository;
+    private final EmployeeChangeCounter _changeCounter;
+    private final Validator _validator;
+    private final TransactionalOperator _transactionalOperator;
+
+    public ReactiveEmployeeService(
+        ReactiveEmployeeRepository employeeRepository,
+        EmployeeChangeCounter changeCounter,
+        Validator validator,
+        TransactionalOperator transactionalOperator
+    ) {
+        _employeeRepository = employeeRepository;
+        _changeCounter = changeCounter;
+        _validator = validator;
+        _transactionalOperator = transactionalOperator;
+    }
+
+    public Flux<EmployeeResponse> getAll() {
+        return _employeeRepository.findAllResponses();
+    }
+
+    public Mono<EmployeeResponse> getById(Integer employeeId) {
+        return _employeeRepository.findResponseById(employeeId);
+    }
+
+    public Mono<EmployeeResponse> create(EmployeeCreateRequest employeeRequest) {
+        return _employeeRepository.insert(employeeRequest.getFirstName(), employeeRequest.getLastName())
+                .doOnNext(created -> _changeCounter.recordChange());
+    }
+
+    /**
+     * Same contract as {@link EmployeeService#createAll}: invalid items are reported by index and
+     * the valid ones are inserted together in one transaction.
+     */
+    public Mono<EmployeeBatchCreateResponse> createAll(List<EmployeeCreateRequest> employeeRequests) {
+        List<EmployeeCreateRequest> valid = new ArrayList<>(employeeRequests.size());
+        List<EmployeeBatchErrorResponse> errors = new ArrayList<>();
+
+        for (int i = 0; i < employeeRequests.size(); i++) {
+            EmployeeCreateRequest employeeRequest = employeeRequests.get(i);
+            if (employeeRequest == null) {
+                errors.add(new EmployeeBatchErrorResponse(i, List.of("The employee must be specified")));
+                continue;
+            }
+
+            Set<ConstraintViolation<EmployeeCreateRequest>> violations = _validator.validate(employeeRequest);
+            if (!violations.isEmpty()) {
+                List<String> messages = violations
+                    .stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.toList());
+                errors.add(new EmployeeBatchErrorResponse(i, messages));
+                continue;
+            }
+
+            valid.add(employeeRequest);
+        }
+
+        // One transaction holds one connection, so the inserts run one after another.
+        return Flux.fromIterable(valid)
+                .concatMap(employeeRequest -> _employeeRepository.insert(employeeRequest.getFirstName(), employeeRequest.getLastName()))
+                .collectList()
+                .as(_transactionalOperator::transactional)
+                .doOnNext(created -> {
+                    if (!created.isEmpty()) {
+                        _changeCounter.recordChange();
+                    }
+                })
+                .map(created -> new EmployeeBatchCreateResponse(created, errors));
+    }
+
+    public Mono<EmployeeResponse> update(Integer employeeId, EmployeeUpdateRequest employeeRequest) {
+        Integer expectedVersion = employeeRequest.getVersion();
+
+        return _employeeRepository.updateEmployee(employeeId, expectedVersion, employeeRequest.getFirstName(), employeeRequest.getLastName())
+                .flatMap(updated -> {
+                    if (updated == 0) {
+                        return updateFailure(employeeId, expectedVersion);
+                    }
+                    _changeCounter.recordChange();
+
+                    if (expectedVersion != null) {
+                        return Mono.just(new EmployeeResponse(employeeId, employeeRequest.getFirstName(), employeeRequest.getLastName(), expectedVersion + 1));
+                    }
+                    return _employeeRepository.findResponseById(employeeId)
+                            .switchIfEmpty(Mono.error(() -> notFound(employeeId)));
+                });
+    }
+
+    private Mono<EmployeeResponse> updateFailure(Integer employeeId, Integer expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.error(notFound(employeeId));
+        }
+
+        return _employeeRepository.existsById(employeeId)
+                .flatMap(exists -> Mono.error(exists
+                        ? new EmployeeVersionConflictException(
+                            String.format("Employee %d has been modified since version %d", employeeId, expectedVersion))
+                        : notFound(employeeId)));
+    }
+
+    private static EmployeeNotFoundException notFound(Integer employeeId) {
+        return new EmployeeNotFoundException(String.format("Employee %d does not exist", employeeId));
+    }
+}
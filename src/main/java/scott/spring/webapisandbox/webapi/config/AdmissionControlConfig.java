@@ -0,0 +1,52 @@
+package scott.spring.webapisandbox.webapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import scott.spring.webapisandbox.webapi.filters.AdaptiveConcurrencyLimit;
+import scott.spring.webapisandbox.webapi.filters.AdaptiveConcurrencyLimitFilter;
+
+import java.util.Set;
+
+/**
+ * Opt-in (app.admission.enabled) admission control for the API, with separate adaptive limits
+ * for reads and writes. It runs ahead of every other filter on /api/*, including the virtual
+ * thread bulkhead, so a rejected request costs next to nothing. The change feed is left out, since
+ * each subscription is a request that stays open; app.changes.max-subscribers caps those instead.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "app.admission.enabled", havingValue = "true")
+public class AdmissionControlConfig {
+
+    @Bean
+    public FilterRegistrationBean<AdaptiveConcurrencyLimitFilter> adaptiveConcurrencyLimitFilter(
+        MeterRegistry meterRegistry,
+        @Value("${app.admission.rejection-status}") int rejectionStatus,
+        @Value("${app.admission.read.initial-limit}") int readInitialLimit,
+        @Value("${app.admission.read.min-limit}") int readMinLimit,
+        @Value("${app.admission.read.max-limit}") int readMaxLimit,
+        @Value("${app.admission.write.initial-limit}") int writeInitialLimit,
+        @Value("${app.admission.write.min-limit}") int writeMinLimit,
+        @Value("${app.admission.write.max-limit}") int writeMaxLimit
+    ) {
+        AdaptiveConcurrencyLimitFilter filter = new AdaptiveConcurrencyLimitFilter(
+            new AdaptiveConcurrencyLimit(readInitialLimit, readMinLimit, readMaxLimit),
+            new AdaptiveConcurrencyLimit(writeInitialLimit, writeMinLimit, writeMaxLimit),
+            HttpStatus.valueOf(rejectionStatus),
+            meterRegistry,
+            Set.of("/api/employee/changes")
+        );
+
+        FilterRegistrationBean<AdaptiveConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 5);
+        return registration;
+    }
+}
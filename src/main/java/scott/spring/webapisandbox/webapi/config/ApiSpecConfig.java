@@ -0,0 +1,32 @@
+package scott.spring.webapisandbox.webapi.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.PathResourceResolver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the API specification generated at build time (by ApiSpecGenerator, into
+ * classpath:/api-docs/) at /api-docs/employee-api.json. Unlike Springfox's /v2/api-docs it needs no
+ * controller scanning, so it is available with app.swagger.enabled=false.
+ *
+ * Clients that accept gzip get the copy compressed at build time. The file only changes with a new
+ * build, so it can be cached for a while and then revalidated against its Last-Modified date.
+ */
+@Configuration
+public class ApiSpecConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/api-docs/**")
+            .addResourceLocations("classpath:/api-docs/")
+            .setCacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic())
+            .resourceChain(true)
+            .addResolver(new EncodedResourceResolver())
+            .addResolver(new PathResourceResolver());
+    }
+}
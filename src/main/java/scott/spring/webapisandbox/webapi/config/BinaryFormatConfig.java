@@ -0,0 +1,46 @@
+package scott.spring.webapisandbox.webapi.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Binary alternatives to JSON for bulk consumers: CBOR (application/cbor) and Smile
+ * (application/x-jackson-smile), chosen with the Accept header for responses and Content-Type for
+ * request bodies. JSON stays the default, since its converter comes first.
+ *
+ * Spring MVC registers both converters when the Jackson dataformat modules are present, but with
+ * plain ObjectMappers. They are replaced here with mappers from Spring Boot's builder, so binary
+ * payloads get the same Jackson setup as JSON (including parameter-name based creators, which the
+ * request models rely on).
+ */
+@Configuration
+public class BinaryFormatConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> _objectMapperBuilder;
+
+    public BinaryFormatConfig(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder) {
+        _objectMapperBuilder = objectMapperBuilder;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2CborHttpMessageConverter) {
+                converters.set(i, new MappingJackson2CborHttpMessageConverter(
+                    _objectMapperBuilder.getObject().factory(new CBORFactory()).build()));
+            } else if (converters.get(i) instanceof MappingJackson2SmileHttpMessageConverter) {
+                converters.set(i, new MappingJackson2SmileHttpMessageConverter(
+                    _objectMapperBuilder.getObject().factory(new SmileFactory()).build()));
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package scott.spring.webapisandbox.webapi.config;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.web.servlet.DefaultWebMvcTagsProvider;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Adds a "handler" tag (e.g. "EmployeeController.getById") to the http.server.requests timer,
+ * alongside the uri, method and status tags Spring Boot already applies, so latency histograms
+ * can be broken down per controller method.
+ */
+@Configuration
+public class MetricsConfig {
+
+    private static final Tag HANDLER_NONE = Tag.of("handler", "none");
+
+    @Bean
+    public WebMvcTagsProvider webMvcTagsProvider() {
+        return new DefaultWebMvcTagsProvider() {
+            @Override
+            public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler, Throwable exception) {
+                return Tags.of(super.getTags(request, response, handler, exception)).and(handlerTag(handler));
+            }
+        };
+    }
+
+    private static Tag handlerTag(Object handler) {
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod handlerMethod = (HandlerMethod) handler;
+            return Tag.of("handler", handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName());
+        }
+        return HANDLER_NONE;
+    }
+}
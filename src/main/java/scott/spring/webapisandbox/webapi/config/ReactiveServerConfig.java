@@ -0,0 +1,21 @@
+package scott.spring.webapisandbox.webapi.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Serves the reactive variant of the API (the "reactive" profile) on Reactor Netty. With Tomcat
+ * also on the classpath for the servlet stack, Spring Boot would otherwise pick Tomcat's reactive
+ * adapter, which still runs each request on a worker from its thread pool.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveServerConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
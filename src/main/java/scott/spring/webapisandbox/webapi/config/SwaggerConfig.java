@@ -1,5 +1,7 @@
 package scott.spring.webapisandbox.webapi.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.bind.annotation.RestController;
@@ -14,7 +16,12 @@ import springfox.documentation.swagger.web.UiConfiguration;
 import springfox.documentation.swagger.web.UiConfigurationBuilder;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+// Springfox 2 only documents Spring MVC, so the reactive variant of the API runs without it. It can
+// also be switched off (app.swagger.enabled), as the "fast-startup" profile does, since scanning
+// every handler method for the docs adds to startup time.
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "app.swagger.enabled", havingValue = "true")
 @EnableSwagger2
 public class SwaggerConfig {
     @Bean
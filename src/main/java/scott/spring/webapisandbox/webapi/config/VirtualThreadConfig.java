@@ -0,0 +1,85 @@
+package scott.spring.webapisandbox.webapi.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import scott.spring.webapisandbox.webapi.filters.ConcurrentRequestLimitFilter;
+
+import javax.annotation.PreDestroy;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in (app.virtual-threads.enabled, or the "virtual-threads" profile) mode that runs Tomcat
+ * request handling, and so the blocking JPA calls made while handling a request, on virtual threads
+ * instead of the fixed platform thread pool. Async request work (e.g. the streamed employee export)
+ * runs on virtual threads too.
+ *
+ * With no thread pool to cap concurrency, the limits come from elsewhere: a request bulkhead
+ * ({@link ConcurrentRequestLimitFilter}) and the Hikari pool size, which is the real bound on how
+ * much work reaches the database.
+ *
+ * Virtual threads need Java 21 or later at runtime. The project still compiles for an older
+ * release, so the executor is looked up reflectively and startup fails clearly without it.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig implements WebMvcConfigurer {
+
+    private final ExecutorService _virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+    private final ObjectProvider<TaskDecorator> _taskDecorator;
+
+    public VirtualThreadConfig(ObjectProvider<TaskDecorator> taskDecorator) {
+        this._taskDecorator = taskDecorator;
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(_virtualThreadExecutor);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ConcurrentRequestLimitFilter> concurrentRequestLimitFilter(
+        @Value("${app.virtual-threads.max-concurrent-requests}") int maxConcurrentRequests,
+        @Value("${app.virtual-threads.queue-timeout-ms}") long queueTimeoutMillis
+    ) {
+        FilterRegistrationBean<ConcurrentRequestLimitFilter> registration =
+            new FilterRegistrationBean<>(new ConcurrentRequestLimitFilter(maxConcurrentRequests, queueTimeoutMillis));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // Decorated as Spring Boot would decorate its own executor (to carry the replica pinning, say).
+        TaskExecutorAdapter executor = new TaskExecutorAdapter(_virtualThreadExecutor);
+        _taskDecorator.ifUnique(executor::setTaskDecorator);
+        configurer.setTaskExecutor(executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        _virtualThreadExecutor.shutdown();
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(
+                "app.virtual-threads.enabled is set but this JVM (" + Runtime.version() + ") has no virtual threads; Java 21 or later is required", e);
+        }
+    }
+}
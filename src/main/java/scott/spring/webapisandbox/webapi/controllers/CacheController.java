@@ -0,0 +1,52 @@
+package scott.spring.webapisandbox.webapi.controllers;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import scott.spring.webapisandbox.webapi.models.response.CacheStatsResponse;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+@RestController()
+@RequestMapping("/api/cache")
+public class CacheController
+{
+	private final CacheManager _cacheManager;
+
+	public CacheController(CacheManager cacheManager) {
+		this._cacheManager = cacheManager;
+	}
+
+	@GetMapping("stats")
+	@ApiOperation(value = "Gets hit, miss and eviction counters for each cache", response = List.class)
+	@ApiResponses(value = {
+		@ApiResponse(code = 200, message = "Successfully retrieved cache statistics"),
+		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
+		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden")
+	})
+	public ResponseEntity<List<CacheStatsResponse>> getStats() {
+
+		List<CacheStatsResponse> response = _cacheManager.getCacheNames()
+			.stream()
+			.map(_cacheManager::getCache)
+			.filter(Objects::nonNull)
+			.filter(CaffeineCache.class::isInstance)
+			.map(CaffeineCache.class::cast)
+			.map(cache -> {
+				Cache<Object, Object> nativeCache = cache.getNativeCache();
+				return CacheStatsResponse.FromCacheStats(cache.getName(), nativeCache.estimatedSize(), nativeCache.stats());
+			})
+			.collect(Collectors.toList());
+
+		return ResponseEntity.ok().body(response);
+	}
+}
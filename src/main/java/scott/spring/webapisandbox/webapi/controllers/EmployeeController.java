@@ -4,50 +4,331 @@ import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import scott.spring.webapisandbox.config.ReplicaRoutingDataSource;
+import scott.spring.webapisandbox.exceptions.EmployeeImportFormatException;
 import scott.spring.webapisandbox.exceptions.EmployeeNotFoundException;
-import scott.spring.webapisandbox.models.Employee;
-import scott.spring.webapisandbox.repositories.EmployeeRepository;
+import scott.spring.webapisandbox.exceptions.EmployeeVersionConflictException;
+import scott.spring.webapisandbox.services.EmployeeChangeCounter;
+import scott.spring.webapisandbox.services.EmployeeChangeFeed;
+import scott.spring.webapisandbox.services.EmployeeGroupCommitService;
+import scott.spring.webapisandbox.services.EmployeeImportService;
+import scott.spring.webapisandbox.services.EmployeeService;
+import scott.spring.webapisandbox.services.EmployeeSnapshot;
+import scott.spring.webapisandbox.services.EmployeeSnapshotService;
+import scott.spring.webapisandbox.services.EmployeeStreamService;
 import scott.spring.webapisandbox.webapi.models.request.EmployeeCreateRequest;
+import scott.spring.webapisandbox.webapi.models.request.EmployeePatchRequest;
 import scott.spring.webapisandbox.webapi.models.request.EmployeeUpdateRequest;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeBatchCreateResponse;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeImportResponse;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeLookupResponse;
+import scott.spring.webapisandbox.webapi.models.response.EmployeePageResponse;
 import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @RestController()
 @RequestMapping("/api/employee")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class EmployeeController
 {
-	private final EmployeeRepository _employeeRepository;
+	private static final int MAX_PAGE_SIZE = 1000;
+	private static final int MAX_BATCH_SIZE = 1000;
+	private static final int MAX_LOOKUP_IDS = 10000;
+	private static final int DEFAULT_SEARCH_LIMIT = 20;
+	private static final int MAX_SEARCH_LIMIT = 100;
+	private static final String NDJSON_VALUE = "application/x-ndjson";
+	private static final String TEXT_CSV_VALUE = "text/csv";
+	private static final MediaType NDJSON = MediaType.valueOf(NDJSON_VALUE);
+	private static final MediaType TEXT_CSV = MediaType.valueOf(TEXT_CSV_VALUE);
+	private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
 
-	public EmployeeController(EmployeeRepository employeeRepository) {
-		this._employeeRepository = employeeRepository;
+	private final EmployeeService _employeeService;
+	private final EmployeeStreamService _employeeStreamService;
+	private final EmployeeChangeCounter _employeeChangeCounter;
+	private final EmployeeSnapshotService _employeeSnapshotService;
+	private final EmployeeImportService _employeeImportService;
+	private final EmployeeGroupCommitService _employeeGroupCommitService;
+	private final EmployeeChangeFeed _employeeChangeFeed;
+
+	public EmployeeController(
+		EmployeeService employeeService,
+		EmployeeStreamService employeeStreamService,
+		EmployeeChangeCounter employeeChangeCounter,
+		EmployeeSnapshotService employeeSnapshotService,
+		EmployeeImportService employeeImportService,
+		EmployeeGroupCommitService employeeGroupCommitService,
+		EmployeeChangeFeed employeeChangeFeed
+	) {
+		this._employeeService = employeeService;
+		this._employeeStreamService = employeeStreamService;
+		this._employeeChangeCounter = employeeChangeCounter;
+		this._employeeSnapshotService = employeeSnapshotService;
+		this._employeeImportService = employeeImportService;
+		this._employeeGroupCommitService = employeeGroupCommitService;
+		this._employeeChangeFeed = employeeChangeFeed;
 	}
 
 	@GetMapping("")
 	@ApiOperation(value = "Gets a list of available employees", response = List.class)
 	@ApiResponses(value = {
 		@ApiResponse(code = 200, message = "Successfully retrieved list of employees"),
+		@ApiResponse(code = 304, message = "No employee has changed since the ETag given in If-None-Match"),
 		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
 		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden"),
 		@ApiResponse(code = 404, message = "The resource you were trying to reach is not found")
 	})
-	public ResponseEntity<List<EmployeeResponse>> getAll() {
+	public ResponseEntity<?> getAll(WebRequest webRequest) {
+		// JSON clients get the pre-serialized snapshot; other formats, and requests made before the
+		// first snapshot is ready, fall through to the query below.
+		EmployeeSnapshot snapshot = prefersJson(webRequest) ? _employeeSnapshotService.getSnapshot() : null;
+		if (snapshot != null) {
+			boolean gzip = acceptsGzip(webRequest);
+			String snapshotETag = gzip ? snapshot.getGzipETag() : snapshot.getETag();
+			if (webRequest.checkNotModified(snapshotETag)) {
+				return null;
+			}
+
+			ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+				.eTag(snapshotETag)
+				.varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+				.contentType(MediaType.APPLICATION_JSON);
+			return gzip
+				? response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.getGzip())
+				: response.body(snapshot.getJson());
+		}
+
+		// Read the ETag before the data: if a write lands in between, the client just refetches next time.
+		String eTag = representationETag(_employeeChangeCounter.getETag(), webRequest);
+		if (webRequest.checkNotModified(eTag)) {
+			return null;
+		}
+
+		// The ETag is the primary's change count, so the data must come from there too: a lagging
+		// replica would serve older rows under it.
+		List<EmployeeResponse> response = ReplicaRoutingDataSource.onPrimary(_employeeService::getAll);
+
+		return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING).body(response);
+	}
+
+	@GetMapping(value = "", params = "limit")
+	@ApiOperation(value = "Gets a page of employees, ordered by id")
+	@ApiResponses(value = {
+		@ApiResponse(code = 200, message = "Successfully retrieved page of employees"),
+		@ApiResponse(code = 304, message = "No employee has changed since the ETag given in If-None-Match"),
+		@ApiResponse(code = 400, message = "The limit or continuation token is invalid"),
+		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
+		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden")
+	})
+	public ResponseEntity<EmployeePageResponse> getPage(
+		@ApiParam(value = "Maximum number of employees to return (at most 1000).", required = true) @RequestParam(value = "limit")
+		Integer limit,
+		@ApiParam(value = "Continuation token from the previous page.") @RequestParam(value = "after", required = false)
+		String after,
+		WebRequest webRequest
+	) {
+		if (limit <= 0) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		Integer afterId = after == null ? Integer.valueOf(0) : decodeContinuationToken(after);
+		if (afterId == null) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		String eTag = representationETag(_employeeChangeCounter.getETag(), webRequest);
+		if (webRequest.checkNotModified(eTag)) {
+			return null;
+		}
+
+		int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+
+		// Fetch one extra row so we know whether there is another page without a count query.
+		// From the primary, as in getAll, to be no older than the ETag.
+		List<EmployeeResponse> items = ReplicaRoutingDataSource.onPrimary(() -> _employeeService.getPage(afterId, pageSize + 1));
+		boolean hasMore = items.size() > pageSize;
+		if (hasMore) {
+			items = items.subList(0, pageSize);
+		}
+
+		String next = hasMore ? encodeContinuationToken(items.get(items.size() - 1).getId()) : null;
+		return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT).body(new EmployeePageResponse(items, next));
+	}
+
+	@GetMapping(value = "", params = { "ids", "!limit" })
+	@ApiOperation(value = "Gets the employees with the given ids, in the order given, and lists the ids not found")
+	@ApiResponses(value = {
+		@ApiResponse(code = 200, message = "Successfully looked up the employees"),
+		@ApiResponse(code = 400, message = "The ids are missing, not positive integers, or more than 10000"),
+		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
+		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden")
+	})
+	public ResponseEntity<EmployeeLookupResponse> getByIds(
+		@ApiParam(value = "Comma-separated ids of the employees to retrieve.", required = true) @RequestParam(value = "ids")
+		String ids
+	) {
+		List<Integer> employeeIds = new ArrayList<>();
+		for (String id : ids.split(",")) {
+			try {
+				employeeIds.add(Integer.valueOf(id.strip()));
+			} catch (NumberFormatException e) {
+				return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+			}
+		}
+
+		return lookup(employeeIds);
+	}
+
+	// The same as GET with ids, for lists too long for a URL.
+	@PostMapping("lookup")
+	@ApiOperation(value = "Gets the employees with the ids in the body, in the order given, and lists the ids not found")
+	@ApiResponses(value = {
+		@ApiResponse(code = 200, message = "Successfully looked up the employees"),
+		@ApiResponse(code = 400, message = "The ids are missing, not positive integers, or more than 10000"),
+		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
+		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden")
+	})
+	public ResponseEntity<EmployeeLookupResponse> lookup(
+		@ApiParam(value = "Ids of the employees to retrieve", required = true) @NotNull @RequestBody
+			List<Integer> employeeIds
+	) {
+		if (employeeIds.isEmpty() || employeeIds.size() > MAX_LOOKUP_IDS) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		Set<Integer> distinctIds = new LinkedHashSet<>(employeeIds);
+		if (distinctIds.stream().anyMatch(id -> id == null || id <= 0)) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		Map<Integer, EmployeeResponse> found = _employeeService.getAllById(distinctIds);
+
+		List<EmployeeResponse> items = new ArrayList<>(found.size());
+		List<Integer> missing = new ArrayList<>(distinctIds.size() - found.size());
+		for (Integer id : distinctIds) {
+			EmployeeResponse employee = found.get(id);
+			if (employee != null) {
+				items.add(employee);
+			} else {
+				missing.add(id);
+			}
+		}
+		return ResponseEntity.ok().body(new EmployeeLookupResponse(items, missing));
+	}
+
+	@GetMapping("stream")
+	@ApiOperation(value = "Streams every employee as a JSON array, ordered by id", response = List.class)
+	@ApiResponses(value = {
+		@ApiResponse(code = 200, message = "Successfully streamed list of employees"),
+		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
+		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden")
+	})
+	public ResponseEntity<StreamingResponseBody> stream() {
+		StreamingResponseBody body = _employeeStreamService::writeAllAsJson;
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+	}
+
+	// Negotiated here rather than with "produces", which would leave other Accept values to fall
+	// through to the {id} mapping.
+	@GetMapping("export")
+	@ApiOperation(value = "Streams every employee as NDJSON or CSV (chosen with the Accept header), ordered by id")
+	@ApiResponses(value = {
+		@ApiResponse(code = 200, message = "Successfully streamed employees"),
+		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
+		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden"),
+		@ApiResponse(code = 406, message = "Neither NDJSON nor CSV is acceptable")
+	})
+	public ResponseEntity<StreamingResponseBody> export(WebRequest webRequest) {
+		MediaType format = exportFormat(webRequest);
+		if (TEXT_CSV.equals(format)) {
+			StreamingResponseBody body = _employeeStreamService::writeAllAsCsv;
+			return ResponseEntity.ok().contentType(new MediaType(TEXT_CSV, StandardCharsets.UTF_8)).body(body);
+		}
+		if (NDJSON.equals(format)) {
+			StreamingResponseBody body = _employeeStreamService::writeAllAsNdjson;
+			return ResponseEntity.ok().contentType(NDJSON).body(body);
+		}
+
+		return new ResponseEntity<>(HttpStatus.NOT_ACCEPTABLE);
+	}
+
+	@GetMapping("changes")
+	@ApiOperation(value = "Streams creates and updates of employees as Server-Sent Events, from now on or after the Last-Event-ID given")
+	@ApiResponses(value = {
+		@ApiResponse(code = 200, message = "Subscribed to the change feed"),
+		@ApiResponse(code = 400, message = "The Last-Event-ID is not a sequence number"),
+		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
+		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden"),
+		@ApiResponse(code = 404, message = "The change feed is switched off"),
+		@ApiResponse(code = 503, message = "The change feed has as many subscribers as it allows")
+	})
+	public ResponseEntity<SseEmitter> changes(
+		@ApiParam(value = "Sequence number of the last change seen.") @RequestHeader(value = "Last-Event-ID", required = false)
+		String lastEventId
+	) {
+		if (!_employeeChangeFeed.isEnabled()) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+
+		Long after;
+		try {
+			after = lastEventId == null || lastEventId.isBlank() ? null : Long.valueOf(lastEventId.strip());
+		} catch (NumberFormatException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
 
-		List<Employee> employees = _employeeRepository.findAll();
+		SseEmitter emitter = _employeeChangeFeed.subscribe(after);
+		if (emitter == null) {
+			return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+		}
+		return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+	}
+
+	@GetMapping("search")
+	@ApiOperation(value = "Finds employees whose first or last name starts with the given text (ignoring case)", response = List.class)
+	@ApiResponses(value = {
+		@ApiResponse(code = 200, message = "Successfully searched employees"),
+		@ApiResponse(code = 400, message = "The search text is blank or the limit is invalid"),
+		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
+		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden")
+	})
+	public ResponseEntity<List<EmployeeResponse>> search(
+		@ApiParam(value = "Start of the first or last name to search for.", required = true) @RequestParam(value = "q")
+		String query,
+		@ApiParam(value = "Maximum number of employees to return (default 20, at most 100).") @RequestParam(value = "limit", required = false)
+		Integer limit
+	) {
+		if (query.isBlank() || (limit != null && limit <= 0)) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
 
-		List<EmployeeResponse> response = employees
-			.stream()
-			.map(EmployeeResponse::FromEmployee)
-			.map(EmployeeResponse.class::cast)
-			.collect(Collectors.toList());
+		int searchLimit = limit == null ? DEFAULT_SEARCH_LIMIT : Math.min(limit, MAX_SEARCH_LIMIT);
 
+		List<EmployeeResponse> response = _employeeService.search(query, searchLimit);
 		return ResponseEntity.ok().body(response);
 	}
 
@@ -55,26 +336,37 @@ public class EmployeeController
 	@ApiOperation(value = "Gets an employee by Id")
 	@ApiResponses(value = {
 		@ApiResponse(code = 200, message = "Successfully retrieved employee"),
+		@ApiResponse(code = 304, message = "The employee has not changed since the ETag given in If-None-Match"),
 		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
 		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden"),
 		@ApiResponse(code = 404, message = "The resource you were trying to reach is not found")
 	})
 	public ResponseEntity<EmployeeResponse> getById(
 		@ApiParam(value = "Id of the employee to retrieve.", required = true) @PathVariable(value = "id")
-		Integer employeeId
+		Integer employeeId,
+		WebRequest webRequest
 	) {
 		if (employeeId <= 0) {
 			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
 		}
 
-		Optional<Employee> resultEmployee = _employeeRepository.findById(employeeId);
+		// Only conditional requests pay for the version lookup, which the read model answers once
+		// loaded; otherwise it reads a single column.
+		if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+			Optional<Integer> version = _employeeService.getVersion(employeeId);
+			if (version.isPresent() && webRequest.checkNotModified(representationETag(versionETag(version.get()), webRequest))) {
+				return null;
+			}
+		}
 
-		if (resultEmployee.isEmpty()) {
+		Optional<EmployeeResponse> response = _employeeService.getById(employeeId);
+
+		if (response.isEmpty()) {
 			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
 		}
 
-		EmployeeResponse response = EmployeeResponse.FromEmployee(resultEmployee.get());
-		return ResponseEntity.ok().body(response);
+		String eTag = representationETag(versionETag(response.get().getVersion()), webRequest);
+		return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT).body(response.get());
 	}
 
 	@ApiOperation(value = "Creates a new employee.")
@@ -89,14 +381,50 @@ public class EmployeeController
 		@ApiParam(value = "Details of the employee to create", required = true) @NotNull @Valid @RequestBody
 			EmployeeCreateRequest employeeRequest
 	) {
-		Employee employee = new Employee(
-				null,
-				employeeRequest.getFirstName(),
-				employeeRequest.getLastName()
-		);
-		employee =  _employeeRepository.save(employee);
-
-		EmployeeResponse response = EmployeeResponse.FromEmployee(employee);
+		EmployeeResponse response = _employeeGroupCommitService.create(employeeRequest);
+		committed(response, true);
+		return ResponseEntity.ok().body(response);
+	}
+
+	@ApiOperation(value = "Creates several new employees in one request.")
+	@PostMapping("batch")
+	@ApiResponses(value = {
+		@ApiResponse(code = 200, message = "Created every valid employee; invalid items are listed in errors"),
+		@ApiResponse(code = 400, message = "The batch is missing, empty or larger than 1000 items"),
+		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
+		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden")
+	})
+	public ResponseEntity<EmployeeBatchCreateResponse> createBatch(
+		@ApiParam(value = "Details of the employees to create", required = true) @NotNull @RequestBody
+			List<EmployeeCreateRequest> employeeRequests
+	) {
+		if (employeeRequests.isEmpty() || employeeRequests.size() > MAX_BATCH_SIZE) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		EmployeeBatchCreateResponse response = _employeeService.createAll(employeeRequests);
+		_employeeChangeFeed.publishCreated(response.getCreated());
+		return ResponseEntity.ok().body(response);
+	}
+
+	@ApiOperation(value = "Imports employees from an NDJSON or CSV body, committing them in chunks as it is read.")
+	@PostMapping(value = "import", consumes = { NDJSON_VALUE, TEXT_CSV_VALUE })
+	@ApiResponses(value = {
+		@ApiResponse(code = 200, message = "Imported every valid record; invalid lines are listed in errors"),
+		@ApiResponse(code = 400, message = "The CSV header does not name the firstName and lastName columns"),
+		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
+		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden")
+	})
+	public ResponseEntity<EmployeeImportResponse> importEmployees(
+		@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+		InputStream body
+	) throws IOException, EmployeeImportFormatException {
+		Charset charset = Optional.ofNullable(contentType.getCharset()).orElse(StandardCharsets.UTF_8);
+		Reader reader = new InputStreamReader(body, charset);
+
+		EmployeeImportResponse response = TEXT_CSV.isCompatibleWith(contentType)
+			? _employeeImportService.importCsv(reader)
+			: _employeeImportService.importNdjson(reader);
 		return ResponseEntity.ok().body(response);
 	}
 
@@ -106,29 +434,159 @@ public class EmployeeController
 		@ApiResponse(code = 200, message = "Successfully updated employee"),
 		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
 		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden"),
-		@ApiResponse(code = 404, message = "The resource you were trying to reach is not found")
+		@ApiResponse(code = 404, message = "The resource you were trying to reach is not found"),
+		@ApiResponse(code = 409, message = "The employee has been modified since the given version")
 	})
 	public ResponseEntity<EmployeeResponse> update(
 			@ApiParam(value = "Id of the employee to update.", required = true) @PathVariable(value = "id")
 			Integer employeeId,
 			@ApiParam(value = "Update employee object", required = true) @NotNull @Valid @RequestBody
 				EmployeeUpdateRequest employeeRequest
-	) {
+	) throws EmployeeNotFoundException, EmployeeVersionConflictException {
 
-		Optional<Employee> resultEmployee = _employeeRepository.findById(employeeId);
+		EmployeeResponse response = _employeeGroupCommitService.update(employeeId, employeeRequest);
+		committed(response, false);
 
-		if (resultEmployee.isEmpty()) {
-			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		return ResponseEntity.ok(response);
+	}
+
+	@ApiOperation(value = "Updates some of the details of an existing employee.")
+	@PatchMapping("{id}")
+	@ApiResponses(value = {
+		@ApiResponse(code = 200, message = "Successfully updated employee"),
+		@ApiResponse(code = 400, message = "No changes were given, or a given name is blank"),
+		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
+		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden"),
+		@ApiResponse(code = 404, message = "The resource you were trying to reach is not found"),
+		@ApiResponse(code = 409, message = "The employee has been modified since the given version")
+	})
+	public ResponseEntity<EmployeeResponse> patch(
+			@ApiParam(value = "Id of the employee to update.", required = true) @PathVariable(value = "id")
+			Integer employeeId,
+			@ApiParam(value = "The employee details to change", required = true) @NotNull @Valid @RequestBody
+				EmployeePatchRequest employeeRequest
+	) throws EmployeeNotFoundException, EmployeeVersionConflictException {
+		if (employeeRequest.getFirstName() == null && employeeRequest.getLastName() == null) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		EmployeeResponse response = _employeeGroupCommitService.patch(employeeId, employeeRequest);
+		committed(response, false);
+
+		return ResponseEntity.ok(response);
+	}
+
+	// Tells the change feed about a write once it has committed.
+	private void committed(EmployeeResponse employee, boolean created) {
+		if (created) {
+			_employeeChangeFeed.publishCreated(employee);
+		} else {
+			_employeeChangeFeed.publishUpdated(employee);
 		}
+	}
 
-		Employee employee = resultEmployee.get();
+	private static boolean prefersJson(WebRequest webRequest) {
+		String accept = webRequest.getHeader(HttpHeaders.ACCEPT);
+		if (accept == null) {
+			return true;
+		}
 
-		employee.setLastName(employeeRequest.getLastName());
-		employee.setFirstName(employeeRequest.getFirstName());
-		employee = _employeeRepository.save(employee);
+		try {
+			List<MediaType> acceptedTypes = MediaType.parseMediaTypes(accept);
+			MediaType.sortBySpecificityAndQuality(acceptedTypes);
+			return acceptedTypes.isEmpty() || acceptedTypes.get(0).isCompatibleWith(MediaType.APPLICATION_JSON);
+		} catch (InvalidMediaTypeException e) {
+			return false;
+		}
+	}
 
-		EmployeeResponse response = EmployeeResponse.FromEmployee(employee);
+	private static MediaType exportFormat(WebRequest webRequest) {
+		String accept = webRequest.getHeader(HttpHeaders.ACCEPT);
+		if (accept == null) {
+			return NDJSON;
+		}
 
-		return ResponseEntity.ok(response);
+		try {
+			List<MediaType> acceptedTypes = MediaType.parseMediaTypes(accept);
+			MediaType.sortBySpecificityAndQuality(acceptedTypes);
+			for (MediaType acceptedType : acceptedTypes) {
+				if (acceptedType.getQualityValue() == 0) {
+					continue;
+				}
+				if (acceptedType.isCompatibleWith(NDJSON)) {
+					return NDJSON;
+				}
+				if (acceptedType.isCompatibleWith(TEXT_CSV)) {
+					return TEXT_CSV;
+				}
+			}
+		} catch (InvalidMediaTypeException e) {
+			return null;
+		}
+		return null;
+	}
+
+	private static boolean acceptsGzip(WebRequest webRequest) {
+		String acceptEncoding = webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING);
+		if (acceptEncoding == null) {
+			return false;
+		}
+
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.trim().split(";");
+			if (parts[0].trim().equalsIgnoreCase("gzip")) {
+				return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+			}
+		}
+		return false;
+	}
+
+	private static String versionETag(Integer version) {
+		return "\"" + version + "\"";
+	}
+
+	// Strong ETags must differ between representations, so CBOR and Smile bodies get their own, as
+	// the gzipped snapshot does. Picks the format the message converters will, JSON coming first.
+	private static String representationETag(String eTag, WebRequest webRequest) {
+		String accept = webRequest.getHeader(HttpHeaders.ACCEPT);
+		if (accept == null) {
+			return eTag;
+		}
+
+		try {
+			List<MediaType> acceptedTypes = MediaType.parseMediaTypes(accept);
+			MediaType.sortBySpecificityAndQuality(acceptedTypes);
+			for (MediaType acceptedType : acceptedTypes) {
+				if (acceptedType.getQualityValue() == 0) {
+					continue;
+				}
+				if (acceptedType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+					return eTag;
+				}
+				if (acceptedType.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+					return eTag.substring(0, eTag.length() - 1) + "-cbor\"";
+				}
+				if (acceptedType.isCompatibleWith(SMILE)) {
+					return eTag.substring(0, eTag.length() - 1) + "-smile\"";
+				}
+			}
+		} catch (InvalidMediaTypeException e) {
+			return eTag;
+		}
+		return eTag;
+	}
+
+	private static String encodeContinuationToken(Integer lastId) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(lastId.toString().getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static Integer decodeContinuationToken(String token) {
+		try {
+			String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+			int lastId = Integer.parseInt(decoded);
+			return lastId < 0 ? null : lastId;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
 	}
 }
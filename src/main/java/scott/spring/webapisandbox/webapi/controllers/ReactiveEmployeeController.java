@@ -0,0 +1,178 @@
+package scott.spring.webapisandbox.webapi.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import scott.spring.webapisandbox.services.EmployeeChangeCounter;
+import scott.spring.webapisandbox.services.ReactiveEmployeeService;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeCreateRequest;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeUpdateRequest;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeBatchCreateResponse;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * The employee API on WebFlux and R2DBC, active when the application runs as a reactive web
+ * application (the "reactive" profile). Routes and payloads match {@link EmployeeController}
+ * for the operations it covers; paging, search, the streaming export and PATCH are only served
+ * by the blocking stack.
+ */
+@RestController()
+@RequestMapping("/api/employee")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveEmployeeController
+{
+	private static final int MAX_BATCH_SIZE = 1000;
+
+	private static final byte[] ARRAY_START = "[".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] ARRAY_END = "]".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] SEPARATOR = ",".getBytes(StandardCharsets.UTF_8);
+
+	private final ReactiveEmployeeService _employeeService;
+	private final EmployeeChangeCounter _employeeChangeCounter;
+	private final ObjectMapper _objectMapper;
+
+	public ReactiveEmployeeController(
+		ReactiveEmployeeService employeeService,
+		EmployeeChangeCounter employeeChangeCounter,
+		ObjectMapper objectMapper
+	) {
+		this._employeeService = employeeService;
+		this._employeeChangeCounter = employeeChangeCounter;
+		this._objectMapper = objectMapper;
+	}
+
+	@GetMapping("")
+	@ApiOperation(value = "Gets a list of available employees", response = List.class)
+	@ApiResponses(value = {
+		@ApiResponse(code = 200, message = "Successfully retrieved list of employees"),
+		@ApiResponse(code = 304, message = "No employee has changed since the ETag given in If-None-Match"),
+		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
+		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden")
+	})
+	public Mono<Void> getAll(ServerWebExchange exchange) {
+		String eTag = _employeeChangeCounter.getETag();
+		if (exchange.checkNotModified(eTag)) {
+			return exchange.getResponse().setComplete();
+		}
+
+		ServerHttpResponse response = exchange.getResponse();
+		response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+		response.getHeaders().setETag(eTag);
+
+		// Written element by element rather than returned as a Flux, which the JSON encoder would
+		// collect into a list first: the client's read rate now paces the database cursor.
+		DataBufferFactory buffers = response.bufferFactory();
+		Flux<DataBuffer> elements = _employeeService.getAll()
+			.index()
+			.handle((indexed, sink) -> {
+				try {
+					byte[] json = _objectMapper.writeValueAsBytes(indexed.getT2());
+					sink.next(indexed.getT1() == 0 ? buffers.wrap(json) : join(buffers, SEPARATOR, json));
+				} catch (JsonProcessingException e) {
+					sink.error(e);
+				}
+			});
+
+		return response.writeWith(Flux.concat(
+			Mono.fromSupplier(() -> buffers.wrap(ARRAY_START)),
+			elements,
+			Mono.fromSupplier(() -> buffers.wrap(ARRAY_END))));
+	}
+
+	@GetMapping("{id}")
+	@ApiOperation(value = "Gets an employee by Id")
+	@ApiResponses(value = {
+		@ApiResponse(code = 200, message = "Successfully retrieved employee"),
+		@ApiResponse(code = 304, message = "The employee has not changed since the ETag given in If-None-Match"),
+		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
+		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden"),
+		@ApiResponse(code = 404, message = "The resource you were trying to reach is not found")
+	})
+	public Mono<ResponseEntity<EmployeeResponse>> getById(
+		@ApiParam(value = "Id of the employee to retrieve.", required = true) @PathVariable(value = "id")
+		Integer employeeId
+	) {
+		if (employeeId <= 0) {
+			return Mono.just(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+		}
+
+		// WebFlux answers If-None-Match itself from the ETag on the returned entity.
+		return _employeeService.getById(employeeId)
+			.map(response -> ResponseEntity.ok().eTag("\"" + response.getVersion() + "\"").body(response))
+			.defaultIfEmpty(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+	}
+
+	@ApiOperation(value = "Creates a new employee.")
+	@PostMapping("")
+	@ApiResponses(value = {
+		@ApiResponse(code = 200, message = "Successfully created employee"),
+		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
+		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden")
+	})
+	public Mono<ResponseEntity<EmployeeResponse>> create(
+		@ApiParam(value = "Details of the employee to create", required = true) @NotNull @Valid @RequestBody
+			EmployeeCreateRequest employeeRequest
+	) {
+		return _employeeService.create(employeeRequest).map(ResponseEntity::ok);
+	}
+
+	@ApiOperation(value = "Creates several new employees in one request.")
+	@PostMapping("batch")
+	@ApiResponses(value = {
+		@ApiResponse(code = 200, message = "Created every valid employee; invalid items are listed in errors"),
+		@ApiResponse(code = 400, message = "The batch is missing, empty or larger than 1000 items"),
+		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
+		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden")
+	})
+	public Mono<ResponseEntity<EmployeeBatchCreateResponse>> createBatch(
+		@ApiParam(value = "Details of the employees to create", required = true) @NotNull @RequestBody
+			List<EmployeeCreateRequest> employeeRequests
+	) {
+		if (employeeRequests.isEmpty() || employeeRequests.size() > MAX_BATCH_SIZE) {
+			return Mono.just(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+		}
+
+		return _employeeService.createAll(employeeRequests).map(ResponseEntity::ok);
+	}
+
+	@ApiOperation(value = "Updates an existing employee.")
+	@PutMapping("{id}")
+	@ApiResponses(value = {
+		@ApiResponse(code = 200, message = "Successfully updated employee"),
+		@ApiResponse(code = 401, message = "You are not authorized to view the resource"),
+		@ApiResponse(code = 403, message = "Accessing the resource you were trying to reach is forbidden"),
+		@ApiResponse(code = 404, message = "The resource you were trying to reach is not found"),
+		@ApiResponse(code = 409, message = "The employee has been modified since the given version")
+	})
+	public Mono<ResponseEntity<EmployeeResponse>> update(
+			@ApiParam(value = "Id of the employee to update.", required = true) @PathVariable(value = "id")
+			Integer employeeId,
+			@ApiParam(value = "Update employee object", required = true) @NotNull @Valid @RequestBody
+				EmployeeUpdateRequest employeeRequest
+	) {
+		return _employeeService.update(employeeId, employeeRequest).map(ResponseEntity::ok);
+	}
+
+	private static DataBuffer join(DataBufferFactory buffers, byte[] prefix, byte[] json) {
+		return buffers.allocateBuffer(prefix.length + json.length).write(prefix).write(json);
+	}
+}
@@ -0,0 +1,156 @@
+package scott.spring.webapisandbox.webapi.filters;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A concurrency limit that follows latency rather than being fixed, along the lines of the
+ * "gradient" limiters. The baseline is the lowest average response time seen in a sample window,
+ * i.e. the time a request takes when nothing is queueing. After each window the window's average
+ * is compared against it: while it stays within a tolerance the limit creeps up, and once
+ * responses slow down past that (because work is queueing somewhere, e.g. for database
+ * connections) it shrinks in proportion. A dropped request is taken as a sign of overload and
+ * backs the limit off by a fixed fraction.
+ *
+ * A lowest-ever baseline would never notice the service getting slower for good, and one measured
+ * while already overloaded would be too high. So every so often one window runs at half the limit,
+ * to drain any queue, and its average becomes the new baseline. While probes keep finding lower
+ * times, the next one comes sooner.
+ *
+ * The limit only grows while requests are actually using at least half of it, so a quiet period
+ * doesn't leave it far above what the service has been shown to handle.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final long MIN_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    private static final double TOLERANCE = 1.5;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double SMOOTHING = 0.2;
+    private static final int PROBE_INTERVAL_WINDOWS = 50;
+    private static final int QUICK_PROBE_INTERVAL_WINDOWS = 5;
+    private static final double DROP_BACKOFF = 0.9;
+
+    private final int _minLimit;
+    private final int _maxLimit;
+    private final AtomicInteger _inFlight = new AtomicInteger();
+    private volatile int _currentLimit;
+
+    // Guarded by this.
+    private double _limit;
+    private double _baselineRttNanos;
+    private long _windowStart;
+    private long _windowRttNanos;
+    private int _windowSamples;
+    private int _windowMaxInFlight;
+    private boolean _windowDropped;
+    private int _windowsUntilProbe = PROBE_INTERVAL_WINDOWS;
+    private boolean _probing;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        this._minLimit = minLimit;
+        this._maxLimit = maxLimit;
+        this._limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this._currentLimit = (int) _limit;
+    }
+
+    public int getLimit() {
+        return _currentLimit;
+    }
+
+    public int getInFlight() {
+        return _inFlight.get();
+    }
+
+    /**
+     * Takes a slot if one is free. Every successful call must be followed by exactly one of the
+     * release methods.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int inFlight = _inFlight.get();
+            if (inFlight >= _currentLimit) {
+                return false;
+            }
+            if (_inFlight.compareAndSet(inFlight, inFlight + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a slot whose request completed normally in the given time.
+     */
+    public void release(long rttNanos, long nowNanos) {
+        int inFlight = _inFlight.getAndDecrement();
+        synchronized (this) {
+            startWindowIfEmpty(nowNanos);
+            _windowRttNanos += rttNanos;
+            _windowSamples++;
+            _windowMaxInFlight = Math.max(_windowMaxInFlight, inFlight);
+            endWindowIfDue(nowNanos);
+        }
+    }
+
+    /**
+     * Releases a slot whose request failed in a way that suggests overload.
+     */
+    public void releaseDropped(long nowNanos) {
+        int inFlight = _inFlight.getAndDecrement();
+        synchronized (this) {
+            startWindowIfEmpty(nowNanos);
+            _windowDropped = true;
+            _windowMaxInFlight = Math.max(_windowMaxInFlight, inFlight);
+            endWindowIfDue(nowNanos);
+        }
+    }
+
+    /**
+     * Releases a slot without taking a sample, for requests whose time says nothing about load
+     * (e.g. long streaming responses).
+     */
+    public void releaseIgnored() {
+        _inFlight.decrementAndGet();
+    }
+
+    // A window runs from its first sample, so an idle spell doesn't count towards it.
+    private void startWindowIfEmpty(long nowNanos) {
+        if (_windowSamples == 0 && !_windowDropped) {
+            _windowStart = nowNanos;
+        }
+    }
+
+    private void endWindowIfDue(long nowNanos) {
+        if (nowNanos - _windowStart < MIN_WINDOW_NANOS || (_windowSamples < MIN_WINDOW_SAMPLES && !_windowDropped)) {
+            return;
+        }
+
+        double windowRtt = _windowSamples == 0 ? 0 : (double) _windowRttNanos / _windowSamples;
+        if (_windowDropped) {
+            _limit *= DROP_BACKOFF;
+        } else if (_probing) {
+            // Still finding queueing at half the limit; look again soon rather than in a while.
+            boolean stillFalling = windowRtt < 0.95 * _baselineRttNanos;
+            _baselineRttNanos = windowRtt;
+            _windowsUntilProbe = stillFalling ? QUICK_PROBE_INTERVAL_WINDOWS : PROBE_INTERVAL_WINDOWS;
+        } else {
+            if (_baselineRttNanos == 0 || windowRtt < _baselineRttNanos) {
+                _baselineRttNanos = windowRtt;
+            }
+            if (_windowMaxInFlight >= _limit / 2) {
+                double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, TOLERANCE * _baselineRttNanos / windowRtt));
+                double target = _limit * gradient + Math.sqrt(_limit);
+                _limit = _limit * (1 - SMOOTHING) + target * SMOOTHING;
+            }
+        }
+        _limit = Math.max(_minLimit, Math.min(_maxLimit, _limit));
+
+        _probing = --_windowsUntilProbe <= 0;
+        _currentLimit = _probing ? Math.max(_minLimit, (int) (_limit / 2)) : (int) _limit;
+
+        _windowRttNanos = 0;
+        _windowSamples = 0;
+        _windowMaxInFlight = _inFlight.get();
+        _windowDropped = false;
+    }
+}
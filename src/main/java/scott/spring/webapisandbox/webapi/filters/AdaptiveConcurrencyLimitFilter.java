@@ -0,0 +1,157 @@
+package scott.spring.webapisandbox.webapi.filters;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Admission control: reads (GET, HEAD, OPTIONS) and writes each get an
+ * {@link AdaptiveConcurrencyLimit}, and a request arriving when its limit is in use is turned
+ * away at once with Retry-After, instead of queueing behind a slow database until everything
+ * times out. Rejecting early keeps the requests that are admitted fast, so throughput holds up
+ * under overload rather than collapsing.
+ *
+ * A request that ends in an unhandled exception, a 503 or a 504 counts as dropped and backs the
+ * limit off; other errors (400, 404, 409, ...) are normal answers and are sampled like any other.
+ * Asynchronous responses (the streaming exports) hold their slot until they finish but aren't
+ * sampled, since their time depends on the size of the data and the client. Requests to the
+ * excluded paths skip admission altogether: they are subscriptions that stay open for minutes, and
+ * holding a slot each would let them take up the whole limit.
+ */
+public class AdaptiveConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final UrlPathHelper URL_PATH_HELPER = new UrlPathHelper();
+
+    private final AdaptiveConcurrencyLimit _readLimit;
+    private final AdaptiveConcurrencyLimit _writeLimit;
+    private final HttpStatus _rejectionStatus;
+    private final Counter _readRejections;
+    private final Counter _writeRejections;
+    private final Set<String> _excludedPaths;
+
+    public AdaptiveConcurrencyLimitFilter(
+        AdaptiveConcurrencyLimit readLimit,
+        AdaptiveConcurrencyLimit writeLimit,
+        HttpStatus rejectionStatus,
+        MeterRegistry meterRegistry,
+        Set<String> excludedPaths
+    ) {
+        this._readLimit = readLimit;
+        this._writeLimit = writeLimit;
+        this._rejectionStatus = rejectionStatus;
+        this._excludedPaths = excludedPaths;
+        this._readRejections = registerMeters(meterRegistry, "read", readLimit);
+        this._writeRejections = registerMeters(meterRegistry, "write", writeLimit);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return _excludedPaths.contains(URL_PATH_HELPER.getPathWithinApplication(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean read = isRead(request.getMethod());
+        AdaptiveConcurrencyLimit limit = read ? _readLimit : _writeLimit;
+
+        if (!limit.tryAcquire()) {
+            (read ? _readRejections : _writeRejections).increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(_rejectionStatus.value());
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete(limit));
+            } else {
+                long now = System.nanoTime();
+                int status = response.getStatus();
+                if (failed || status == HttpStatus.SERVICE_UNAVAILABLE.value() || status == HttpStatus.GATEWAY_TIMEOUT.value()) {
+                    limit.releaseDropped(now);
+                } else {
+                    limit.release(now - start, now);
+                }
+            }
+        }
+    }
+
+    private static boolean isRead(String method) {
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method);
+    }
+
+    private static Counter registerMeters(MeterRegistry meterRegistry, String route, AdaptiveConcurrencyLimit limit) {
+        Gauge.builder("http.admission.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+            .description("Current concurrency limit")
+            .tag("route", route)
+            .register(meterRegistry);
+        Gauge.builder("http.admission.in.flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+            .description("Requests currently admitted")
+            .tag("route", route)
+            .register(meterRegistry);
+        return Counter.builder("http.admission.rejected")
+            .description("Requests turned away because the concurrency limit was in use")
+            .tag("route", route)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Frees an asynchronous request's slot once the response is done, however it ends.
+     */
+    private static class ReleaseOnComplete implements AsyncListener {
+
+        private final AdaptiveConcurrencyLimit _limit;
+        private boolean _released;
+
+        ReleaseOnComplete(AdaptiveConcurrencyLimit limit) {
+            this._limit = limit;
+        }
+
+        @Override
+        public synchronized void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public synchronized void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public synchronized void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (!_released) {
+                _released = true;
+                _limit.releaseIgnored();
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package scott.spring.webapisandbox.webapi.filters;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bulkhead on the number of requests being handled at once. Requests over the limit wait up to
+ * the queue timeout for a slot, then get a 503 with Retry-After rather than piling up behind the
+ * connection pool. Asynchronous responses (the streaming exports and the change feed) keep their
+ * slot until they finish.
+ */
+public class ConcurrentRequestLimitFilter extends OncePerRequestFilter {
+
+    private final Semaphore _permits;
+    private final long _queueTimeoutMillis;
+
+    public ConcurrentRequestLimitFilter(int maxConcurrentRequests, long queueTimeoutMillis) {
+        this._permits = new Semaphore(maxConcurrentRequests);
+        this._queueTimeoutMillis = queueTimeoutMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = _permits.tryAcquire(_queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete(_permits));
+            } else {
+                _permits.release();
+            }
+        }
+    }
+
+    /**
+     * Frees an asynchronous request's permit once the response is done, however it ends.
+     */
+    private static class ReleaseOnComplete implements AsyncListener {
+
+        private final Semaphore _permits;
+        private boolean _released;
+
+        ReleaseOnComplete(Semaphore permits) {
+            this._permits = permits;
+        }
+
+        @Override
+        public synchronized void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public synchronized void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public synchronized void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (!_released) {
+                _released = true;
+                _permits.release();
+            }
+        }
+    }
+}
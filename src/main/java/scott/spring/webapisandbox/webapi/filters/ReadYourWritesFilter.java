@@ -0,0 +1,72 @@
+package scott.spring.webapisandbox.webapi.filters;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+import scott.spring.webapisandbox.config.ReplicaRoutingDataSource;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Read-your-writes for replica routing. Any write request gets a cookie saying until when its
+ * client should read from the primary, and requests carrying an unexpired one are pinned to it,
+ * so a client doesn't read a replica that hasn't caught up with its own change yet. The window
+ * should cover the usual replication lag.
+ *
+ * The cookie only ever moves reads to the primary, so there is nothing to gain by forging it.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE_NAME = "read-primary-until";
+
+    private final long _windowMillis;
+
+    public ReadYourWritesFilter(long windowMillis) {
+        this._windowMillis = windowMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean write = !isRead(request.getMethod());
+
+        // Set before the chain runs: by the time it returns the response may be committed.
+        if (write) {
+            Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(now + _windowMillis));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (_windowMillis + 999) / 1000));
+            response.addCookie(cookie);
+        }
+
+        ReplicaRoutingDataSource.setPinnedToPrimary(write || pinnedUntil(request) > now);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.setPinnedToPrimary(false);
+        }
+    }
+
+    private static long pinnedUntil(HttpServletRequest request) {
+        Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+        if (cookie == null) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(cookie.getValue());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static boolean isRead(String method) {
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method);
+    }
+}
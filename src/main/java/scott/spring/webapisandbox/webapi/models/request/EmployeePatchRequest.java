@@ -0,0 +1,29 @@
+package scott.spring.webapisandbox.webapi.models.request;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.constraints.Pattern;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ApiModel(description="Changes to some of the details of an existing employee. Fields left out are not changed.")
+public class EmployeePatchRequest {
+
+    @ApiModelProperty(notes = "The new employee first name")
+    @Pattern(regexp = ".*\\S.*", message = "The first name must not be blank")
+    private String firstName;
+
+    @ApiModelProperty(notes = "The new employee last name")
+    @Pattern(regexp = ".*\\S.*", message = "The last name must not be blank")
+    private String lastName;
+
+    @ApiModelProperty(notes = "The version being updated; if given, the update fails with a conflict when the employee has changed since")
+    private Integer version;
+}
@@ -4,12 +4,14 @@ import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import javax.validation.constraints.NotBlank;
 
 @Getter
 @Setter
+@NoArgsConstructor
 @AllArgsConstructor
 @ApiModel(description="New details for an existing employee to be updated.")
 public class EmployeeUpdateRequest {
@@ -21,4 +23,11 @@ public class EmployeeUpdateRequest {
     @ApiModelProperty(notes = "The employee last name")
     @NotBlank(message = "The last name must be specified")
     private String lastName;
+
+    @ApiModelProperty(notes = "The version being updated; if given, the update fails with a conflict when the employee has changed since")
+    private Integer version;
+
+    public EmployeeUpdateRequest(String firstName, String lastName) {
+        this(firstName, lastName, null);
+    }
 }
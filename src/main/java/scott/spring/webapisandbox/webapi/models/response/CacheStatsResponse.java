@@ -0,0 +1,44 @@
+package scott.spring.webapisandbox.webapi.models.response;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@ApiModel(description="Hit, miss and eviction counters for an in-process cache.")
+public class CacheStatsResponse {
+
+    @ApiModelProperty(notes = "The cache name")
+    private String name;
+
+    @ApiModelProperty(notes = "Approximate number of entries currently held")
+    private long size;
+
+    @ApiModelProperty(notes = "Number of lookups that found a cached value")
+    private long hitCount;
+
+    @ApiModelProperty(notes = "Number of lookups that had to go to the database")
+    private long missCount;
+
+    @ApiModelProperty(notes = "Fraction of lookups that were hits")
+    private double hitRate;
+
+    @ApiModelProperty(notes = "Number of entries evicted because of size or expiry")
+    private long evictionCount;
+
+    public static CacheStatsResponse FromCacheStats(String name, long size, CacheStats stats) {
+        return new CacheStatsResponse(
+                name,
+                size,
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount()
+        );
+    }
+}
@@ -0,0 +1,22 @@
+package scott.spring.webapisandbox.webapi.models.response;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@ApiModel(description="Result of a batch employee creation.")
+public class EmployeeBatchCreateResponse {
+
+    @ApiModelProperty(notes = "The created employees, in request order (invalid items are skipped)")
+    private List<EmployeeResponse> created;
+
+    @ApiModelProperty(notes = "Validation errors for items that were not created")
+    private List<EmployeeBatchErrorResponse> errors;
+}
@@ -0,0 +1,22 @@
+package scott.spring.webapisandbox.webapi.models.response;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@ApiModel(description="Validation errors for one item of a batch request.")
+public class EmployeeBatchErrorResponse {
+
+    @ApiModelProperty(notes = "Zero-based position of the item in the request")
+    private int index;
+
+    @ApiModelProperty(notes = "The validation messages for the item")
+    private List<String> messages;
+}
@@ -0,0 +1,22 @@
+package scott.spring.webapisandbox.webapi.models.response;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@ApiModel(description="Parse or validation errors for one line of a bulk import.")
+public class EmployeeImportErrorResponse {
+
+    @ApiModelProperty(notes = "One-based line number in the request body")
+    private long line;
+
+    @ApiModelProperty(notes = "The error messages for the line")
+    private List<String> messages;
+}
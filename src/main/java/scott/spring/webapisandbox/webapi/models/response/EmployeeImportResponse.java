@@ -0,0 +1,31 @@
+package scott.spring.webapisandbox.webapi.models.response;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@ApiModel(description="Result of a bulk employee import.")
+public class EmployeeImportResponse {
+
+    @ApiModelProperty(notes = "Number of records read (blank lines and the CSV header are not counted)")
+    private long recordCount;
+
+    @ApiModelProperty(notes = "Number of employees created")
+    private long importedCount;
+
+    @ApiModelProperty(notes = "Number of records that could not be imported")
+    private long failedCount;
+
+    @ApiModelProperty(notes = "Errors for the records that could not be imported, up to the configured limit")
+    private List<EmployeeImportErrorResponse> errors;
+
+    @ApiModelProperty(notes = "True if there were more errors than are listed")
+    private boolean errorsTruncated;
+}
@@ -0,0 +1,24 @@
+package scott.spring.webapisandbox.webapi.models.response;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ApiModel(description="The employees found for a list of ids.")
+public class EmployeeLookupResponse {
+
+    @ApiModelProperty(notes = "The employees found, in the order their ids were given (each once)")
+    private List<EmployeeResponse> items;
+
+    @ApiModelProperty(notes = "The ids given that no employee has, in the order they were given")
+    private List<Integer> missing;
+}
@@ -0,0 +1,24 @@
+package scott.spring.webapisandbox.webapi.models.response;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ApiModel(description="A page of employee records, ordered by id.")
+public class EmployeePageResponse {
+
+    @ApiModelProperty(notes = "The employees in this page")
+    private List<EmployeeResponse> items;
+
+    @ApiModelProperty(notes = "Token to pass as 'after' to fetch the next page, or null if this is the last page")
+    private String next;
+}
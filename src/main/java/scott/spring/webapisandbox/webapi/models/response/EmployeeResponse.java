@@ -23,11 +23,15 @@ public class EmployeeResponse {
     @ApiModelProperty(notes = "The employee last name")
     private String lastName;
 
+    @ApiModelProperty(notes = "The version of the employee record, incremented on every update")
+    private Integer version;
+
     public static EmployeeResponse FromEmployee(Employee employee) {
         return new EmployeeResponse(
                 employee.getId(),
                 employee.getFirstName(),
-                employee.getLastName()
+                employee.getLastName(),
+                employee.getVersion()
         );
     }
 }
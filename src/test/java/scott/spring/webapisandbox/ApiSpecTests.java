@@ -0,0 +1,68 @@
+package scott.spring.webapisandbox;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The spec is generated by the build before the tests run; see ApiSpecGenerator.
+@SpringBootTest(properties = "app.swagger.enabled=false")
+@AutoConfigureMockMvc
+public class ApiSpecTests {
+
+	@Autowired
+	private MockMvc _mockMvc;
+
+	@Test
+	public void given_SwaggerDisabled_Then_StaticSpec_Is_Served_With_CacheHeaders() throws Exception {
+		// Act / Assert
+		this._mockMvc
+			.perform(get("/api-docs/employee-api.json"))
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith("application/json"))
+			.andExpect(header().string("Cache-Control", containsString("max-age=3600")))
+			.andExpect(header().exists("Last-Modified"))
+			.andExpect(header().doesNotExist("Content-Encoding"))
+			.andExpect(jsonPath("$.swagger").value("2.0"))
+			.andExpect(jsonPath("$.paths['/api/employee/{id}']").exists())
+			.andExpect(jsonPath("$.definitions.EmployeeResponse").exists())
+			.andExpect(jsonPath("$.host").doesNotExist());
+	}
+
+	@Test
+	public void given_AcceptEncodingGzip_Then_StaticSpec_Is_Served_Precompressed() throws Exception {
+		// Act
+		MvcResult mvcResult = this._mockMvc
+			.perform(get("/api-docs/employee-api.json").header("Accept-Encoding", "gzip"))
+			.andExpect(status().isOk())
+			.andExpect(header().string("Content-Encoding", "gzip"))
+			.andExpect(header().string("Vary", containsString("Accept-Encoding")))
+			.andReturn();
+
+		// Assert
+		byte[] spec = new GZIPInputStream(new ByteArrayInputStream(mvcResult.getResponse().getContentAsByteArray())).readAllBytes();
+		Assertions.assertTrue(new String(spec, StandardCharsets.UTF_8).contains("\"/api/employee\""));
+	}
+
+	@Test
+	public void given_SwaggerDisabled_Then_RuntimeDocs_Are_NotServed() throws Exception {
+		// Act / Assert
+		this._mockMvc
+			.perform(get("/v2/api-docs"))
+			.andExpect(status().isNotFound());
+	}
+}
@@ -0,0 +1,45 @@
+package scott.spring.webapisandbox;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class MetricsTests {
+
+	@Autowired
+	private MockMvc _mockMvc;
+
+	@Test
+	public void given_EmployeeRequest_Then_PrometheusEndpoint_Exposes_RequestPersistenceAndJvmMetrics() throws Exception {
+		// Arrange
+		this._mockMvc
+			.perform(get("/api/employee/1"))
+			.andExpect(status().isNotFound());
+
+		// Act / Assert
+		this._mockMvc
+			.perform(get("/actuator/prometheus"))
+			.andExpect(status().isOk())
+			.andExpect(content().string(containsString("http_server_requests_seconds_bucket{exception=\"None\",handler=\"EmployeeController.getById\"")))
+			.andExpect(content().string(containsString("status=\"404\"")))
+			.andExpect(content().string(containsString("hibernate_query_executions_total")))
+			.andExpect(content().string(containsString("hibernate_entities_loads_total")))
+			.andExpect(content().string(containsString("hibernate_flushes_total")))
+			.andExpect(content().string(containsString("hibernate_second_level_cache_requests_total")))
+			.andExpect(content().string(containsString("hikaricp_connections_active")))
+			.andExpect(content().string(containsString("hikaricp_connections_idle")))
+			.andExpect(content().string(containsString("hikaricp_connections_pending")))
+			.andExpect(content().string(containsString("hikaricp_connections_acquire_seconds")))
+			.andExpect(content().string(containsString("jvm_gc_memory_allocated_bytes_total")))
+			.andExpect(content().string(containsString("jvm_gc_pause_seconds")));
+	}
+}
@@ -0,0 +1,91 @@
+package scott.spring.webapisandbox;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first request of a cold start in the "fast-startup" profile: a new JVM is launched, and
+ * the clock runs from launch until GET /api/employee has returned 200.
+ *
+ * A cold start is mostly class loading and JIT compilation, so it scales with the cores available:
+ * it takes a few seconds on four cores and about 14 s on one. The default budget is that work plus
+ * a margin, 8 s on four or more cores and up to 20 s on one, which a startup regression of a few
+ * seconds will still break. It can be set outright with -Dapp.startup.budget-ms.
+ */
+public class StartupBudgetTests {
+
+    private static final long BUDGET_MILLIS = Long.getLong("app.startup.budget-ms",
+        4_000 + 16_000 / Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    @Test
+    public void given_FastStartupProfile_Then_FirstRequest_IsServed_WithinBudget() throws Exception {
+        // Arrange
+        int port = freePort();
+        Path log = Files.createTempFile("startup-budget", ".log");
+        ProcessBuilder processBuilder = new ProcessBuilder(List.of(
+            Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path"),
+            Application.class.getName(),
+            "--spring.profiles.active=fast-startup",
+            "--server.port=" + port
+        )).redirectErrorStream(true).redirectOutput(log.toFile());
+
+        // Act
+        long startNanos = System.nanoTime();
+        Process application = processBuilder.start();
+        try {
+            int status = awaitFirstResponse(application, port, "/api/employee", startNanos);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            int docsStatus = get(port, "/v2/api-docs");
+
+            // Assert
+            Assertions.assertEquals(200, status);
+            Assertions.assertTrue(elapsedMillis <= BUDGET_MILLIS,
+                "First request took " + elapsedMillis + " ms, over the " + BUDGET_MILLIS + " ms budget");
+            Assertions.assertEquals(404, docsStatus, "API docs should be off in the fast-startup profile");
+            Assertions.assertTrue(Files.readString(log).contains("Startup timeline"));
+        } finally {
+            application.destroy();
+            application.waitFor(10, TimeUnit.SECONDS);
+            Files.deleteIfExists(log);
+        }
+    }
+
+    private static int awaitFirstResponse(Process application, int port, String path, long startNanos) throws InterruptedException {
+        // Keep polling somewhat past the budget, so that a miss reports how long startup actually took.
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(BUDGET_MILLIS * 2);
+        while (System.nanoTime() < deadline) {
+            Assertions.assertTrue(application.isAlive(), "Application exited during startup");
+            try {
+                return get(port, path);
+            } catch (IOException notListeningYet) {
+                Thread.sleep(20);
+            }
+        }
+        throw new AssertionError("No response within " + BUDGET_MILLIS * 2 + " ms");
+    }
+
+    private static int get(int port, String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package scott.spring.webapisandbox.config;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import scott.spring.webapisandbox.webapi.filters.ReadYourWritesFilter;
+
+import javax.servlet.http.Cookie;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.oneOf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Each "replica" is a separate in-memory H2 database holding its own version of one employee,
+// so the response shows which database served the read. Nothing replicates into them. Lookups are
+// coalesced and multi-gets split one id per query, so those reads run on other threads.
+@SpringBootTest(properties = {
+    "app.datasource.replicas=" + ReplicaRoutingConfigTests.REPLICA_1 + "," + ReplicaRoutingConfigTests.REPLICA_2,
+    "app.datasource.replica-selection=round-robin",
+    "app.datasource.read-your-writes-ms=60000",
+    "spring.datasource.username=" + ReplicaRoutingConfigTests.USERNAME,
+    "spring.datasource.password=" + ReplicaRoutingConfigTests.PASSWORD,
+    "spring.cache.type=none",
+    "app.coalescing.enabled=true",
+    "app.multi-get.chunk-size=1"
+})
+@AutoConfigureMockMvc
+public class ReplicaRoutingConfigTests {
+
+    static final String REPLICA_1 = "jdbc:h2:mem:replica1;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_2 = "jdbc:h2:mem:replica2;DB_CLOSE_DELAY=-1";
+    static final int REPLICA_EMPLOYEE_ID = 999999;
+    static final String USERNAME = "sa";
+    static final String PASSWORD = "password";
+
+    @Autowired
+    private MockMvc _mockMvc;
+
+    @BeforeAll
+    public static void createReplicas() throws SQLException {
+        createReplica(REPLICA_1, "Replica1");
+        createReplica(REPLICA_2, "Replica2");
+    }
+
+    @Test
+    public void given_Replicas_Then_Reads_GoToEachReplicaInTurn() throws Exception {
+        // Act
+        String first = readFirstName("/api/employee/" + REPLICA_EMPLOYEE_ID);
+        String second = readFirstName("/api/employee/" + REPLICA_EMPLOYEE_ID);
+
+        // Assert
+        Assertions.assertNotEquals(first, second);
+        Assertions.assertTrue(first.startsWith("Replica") && second.startsWith("Replica"));
+    }
+
+    @Test
+    public void given_RecentWrite_Then_ThatClientsReads_GoToPrimary() throws Exception {
+        // Arrange
+        MvcResult created = _mockMvc
+            .perform(post("/api/employee")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\":\"Primary\",\"lastName\":\"Written\"}"))
+            .andExpect(status().isOk())
+            .andExpect(cookie().exists(ReadYourWritesFilter.COOKIE_NAME))
+            .andReturn();
+        Cookie pin = created.getResponse().getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        Integer id = JsonPath.read(created.getResponse().getContentAsString(), "$.id");
+
+        // Act / Assert
+        _mockMvc.perform(get("/api/employee/" + id).cookie(pin))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.firstName", is("Primary")));
+        _mockMvc.perform(get("/api/employee/" + id))
+            .andExpect(status().isNotFound());
+        _mockMvc.perform(get("/api/employee/" + REPLICA_EMPLOYEE_ID).cookie(new Cookie(ReadYourWritesFilter.COOKIE_NAME, "1")))
+            .andExpect(jsonPath("$.firstName", oneOf("Replica1", "Replica2")));
+    }
+
+    @Test
+    public void given_RecentWrite_Then_ThatClientsReadsOnOtherThreads_GoToPrimary() throws Exception {
+        // Arrange
+        MvcResult created = _mockMvc
+            .perform(post("/api/employee")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\":\"Streamed\",\"lastName\":\"Written\"}"))
+            .andExpect(status().isOk())
+            .andReturn();
+        Cookie pin = created.getResponse().getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        Integer id = JsonPath.read(created.getResponse().getContentAsString(), "$.id");
+
+        // Act
+        MvcResult lookup = _mockMvc.perform(get("/api/employee").param("ids", id + "," + REPLICA_EMPLOYEE_ID).cookie(pin))
+            .andExpect(status().isOk())
+            .andReturn();
+        MvcResult streaming = _mockMvc.perform(get("/api/employee/stream").cookie(pin))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String streamed = _mockMvc.perform(asyncDispatch(streaming)).andReturn().getResponse().getContentAsString();
+
+        // Assert
+        List<Integer> found = JsonPath.read(lookup.getResponse().getContentAsString(), "$.items[*].id");
+        Assertions.assertEquals(List.of(id), found);
+        Assertions.assertTrue(streamed.contains("\"Streamed\""), streamed);
+        Assertions.assertFalse(streamed.contains("Replica"), streamed);
+    }
+
+    @Test
+    public void given_Replicas_Then_ListReadsCarryingTheChangeETag_GoToPrimary() throws Exception {
+        // Act
+        MvcResult all = _mockMvc.perform(get("/api/employee").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andReturn();
+        MvcResult page = _mockMvc.perform(get("/api/employee").param("limit", "1000"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // Assert
+        List<Integer> allIds = JsonPath.read(all.getResponse().getContentAsString(), "$[*].id");
+        List<Integer> pageIds = JsonPath.read(page.getResponse().getContentAsString(), "$.items[*].id");
+        Assertions.assertFalse(allIds.contains(REPLICA_EMPLOYEE_ID), allIds.toString());
+        Assertions.assertFalse(pageIds.contains(REPLICA_EMPLOYEE_ID), pageIds.toString());
+    }
+
+    private String readFirstName(String path) throws Exception {
+        MvcResult result = _mockMvc.perform(get(path)).andExpect(status().isOk()).andReturn();
+        return JsonPath.read(result.getResponse().getContentAsString(), "$.firstName");
+    }
+
+    private static void createReplica(String url, String firstName) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, USERNAME, PASSWORD);
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists employees (id integer primary key, first_name varchar(255), "
+                + "last_name varchar(255), version integer, first_name_search varchar(255), last_name_search varchar(255))");
+            statement.execute("merge into employees key (id) values (" + REPLICA_EMPLOYEE_ID + ", '" + firstName + "', 'Replica', 0, null, null)");
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package scott.spring.webapisandbox.config;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import scott.spring.webapisandbox.services.EmployeeShardRebalancer;
+import scott.spring.webapisandbox.services.EmployeeShardRouter;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Three in-memory H2 databases as shards; the assertions look at each one directly.
+@SpringBootTest(properties = {
+    "app.sharding.shards=" + ShardingConfigTests.SHARD_0 + "," + ShardingConfigTests.SHARD_1 + "," + ShardingConfigTests.SHARD_2,
+    "spring.datasource.username=" + ShardingConfigTests.USERNAME,
+    "spring.datasource.password=" + ShardingConfigTests.PASSWORD,
+    "spring.cache.type=none"
+})
+@AutoConfigureMockMvc
+public class ShardingConfigTests {
+
+    static final String SHARD_0 = "jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1";
+    static final String SHARD_1 = "jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1";
+    static final String SHARD_2 = "jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1";
+    static final String USERNAME = "sa";
+    static final String PASSWORD = "password";
+    private static final String[] SHARDS = { SHARD_0, SHARD_1, SHARD_2 };
+    private static final int MOVED_ID_BASE = 1_000_000;
+
+    @Autowired
+    private MockMvc _mockMvc;
+
+    @Autowired
+    private EmployeeShardRebalancer _rebalancer;
+
+    @Test
+    public void given_Shards_Then_Employees_AreSpreadByIdAndReadBackInIdOrder() throws Exception {
+        // Arrange
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            MvcResult created = _mockMvc
+                .perform(post("/api/employee")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"firstName\":\"Sharded" + i + "\",\"lastName\":\"Employee\"}"))
+                .andExpect(status().isOk())
+                .andReturn();
+            ids.add(JsonPath.read(created.getResponse().getContentAsString(), "$.id"));
+        }
+
+        // Act
+        _mockMvc.perform(put("/api/employee/" + ids.get(7))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\":\"Updated\",\"lastName\":\"Employee\",\"version\":0}"))
+            .andExpect(status().isOk());
+        MvcResult all = _mockMvc.perform(get("/api/employee")).andExpect(status().isOk()).andReturn();
+        MvcResult page = _mockMvc.perform(get("/api/employee").param("limit", "10")).andExpect(status().isOk()).andReturn();
+        MvcResult lookup = _mockMvc.perform(get("/api/employee").param("ids", ids.get(4) + ",999999," + ids.get(1) + "," + ids.get(2)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // Assert
+        Map<Integer, Integer> shardOfId = readShardOfIds();
+        for (Integer id : ids) {
+            Assertions.assertEquals(EmployeeShardRouter.shardOf(id, SHARDS.length), shardOfId.get(id), "employee " + id);
+        }
+        Assertions.assertEquals(SHARDS.length, shardOfId.values().stream().distinct().count());
+
+        List<Integer> allIds = JsonPath.read(all.getResponse().getContentAsString(), "$[*].id");
+        Assertions.assertTrue(allIds.containsAll(ids));
+        Assertions.assertEquals(allIds.stream().sorted().distinct().collect(Collectors.toList()), allIds);
+        Assertions.assertEquals(allIds.subList(0, 10), JsonPath.read(page.getResponse().getContentAsString(), "$.items[*].id"));
+        Assertions.assertEquals(List.of(ids.get(4), ids.get(1), ids.get(2)), JsonPath.read(lookup.getResponse().getContentAsString(), "$.items[*].id"));
+        Assertions.assertEquals(List.of(999999), JsonPath.read(lookup.getResponse().getContentAsString(), "$.missing"));
+
+        _mockMvc.perform(get("/api/employee/" + ids.get(7)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.firstName", is("Updated")))
+            .andExpect(jsonPath("$.version", is(1)));
+    }
+
+    @Test
+    public void given_RowsPlacedForFewerShards_Then_Rebalance_MovesOnlyThoseBelongingElsewhere() throws Exception {
+        // Arrange: rows where two shards would have put them.
+        int expectedMoves = 0;
+        for (int id = MOVED_ID_BASE; id < MOVED_ID_BASE + 100; id++) {
+            int before = EmployeeShardRouter.shardOf(id, 2);
+            execute(SHARDS[before], "insert into employees (id, first_name, last_name, version, first_name_search, last_name_search) "
+                + "values (" + id + ", 'Moved', 'Employee', 3, 'moved', 'employee')");
+            if (EmployeeShardRouter.shardOf(id, SHARDS.length) != before) {
+                expectedMoves++;
+            }
+        }
+
+        // Act
+        int moved = _rebalancer.rebalance();
+
+        // Assert
+        Assertions.assertEquals(expectedMoves, moved);
+        Assertions.assertTrue(moved > 0 && moved < 100, "moved " + moved);
+        Map<Integer, Integer> shardOfId = readShardOfIds();
+        for (int id = MOVED_ID_BASE; id < MOVED_ID_BASE + 100; id++) {
+            Assertions.assertEquals(EmployeeShardRouter.shardOf(id, SHARDS.length), shardOfId.get(id), "employee " + id);
+        }
+        _mockMvc.perform(get("/api/employee/" + (MOVED_ID_BASE + 1)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.version", is(3)));
+    }
+
+    // Fails if an id is on more than one shard.
+    private static Map<Integer, Integer> readShardOfIds() throws SQLException {
+        Map<Integer, Integer> shardOfId = new HashMap<>();
+        for (int shard = 0; shard < SHARDS.length; shard++) {
+            try (Connection connection = DriverManager.getConnection(SHARDS[shard], USERNAME, PASSWORD);
+                 Statement statement = connection.createStatement();
+                 ResultSet ids = statement.executeQuery("select id from employees")) {
+                while (ids.next()) {
+                    Assertions.assertNull(shardOfId.put(ids.getInt(1), shard), "employee " + ids.getInt(1) + " is on two shards");
+                }
+            }
+        }
+        return shardOfId;
+    }
+
+    private static void execute(String url, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, USERNAME, PASSWORD);
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
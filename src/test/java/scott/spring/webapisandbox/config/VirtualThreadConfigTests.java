@@ -0,0 +1,45 @@
+package scott.spring.webapisandbox.config;
+
+import org.apache.catalina.connector.Connector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("virtual-threads")
+public class VirtualThreadConfigTests {
+
+    @Autowired
+    private ServletWebServerApplicationContext _context;
+
+    @Autowired
+    private TestRestTemplate _restTemplate;
+
+    @BeforeAll
+    public static void requireVirtualThreads() {
+        assumeTrue(Runtime.version().feature() >= 21, "Virtual threads need Java 21 or later");
+    }
+
+    @Test
+    public void given_VirtualThreadsProfile_Then_Tomcat_HandlesRequestsOnVirtualThreads() {
+        // Arrange
+        Connector connector = ((TomcatWebServer) _context.getWebServer()).getTomcat().getConnector();
+
+        // Act
+        ResponseEntity<String> response = _restTemplate.getForEntity("/api/employee", String.class);
+
+        // Assert
+        Assertions.assertTrue(connector.getProtocolHandler().getExecutor().getClass().getName().contains("ThreadPerTaskExecutor"));
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+}
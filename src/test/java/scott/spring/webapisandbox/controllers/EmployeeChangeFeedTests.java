@@ -0,0 +1,84 @@
+package scott.spring.webapisandbox.controllers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeCreateRequest;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeUpdateRequest;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = { "app.changes.enabled=true" }
+)
+public class EmployeeChangeFeedTests {
+
+    @LocalServerPort
+    private int _port;
+
+    @Autowired
+    private TestRestTemplate _restTemplate;
+
+    @Test
+    public void given_CreateAndUpdate_Then_Changes_StreamsThem_And_ResumesAfterLastEventId() throws IOException {
+        // Arrange
+        EmployeeResponse created = _restTemplate.postForObject("/api/employee", new EmployeeCreateRequest("Change", "Feed"), EmployeeResponse.class);
+        ResponseEntity<EmployeeResponse> updated = _restTemplate.exchange("/api/employee/" + created.getId(), HttpMethod.PUT,
+            new HttpEntity<>(new EmployeeUpdateRequest("Changed", "Feed", created.getVersion())), EmployeeResponse.class);
+        Assertions.assertEquals(HttpStatus.OK, updated.getStatusCode());
+
+        // Act
+        List<String> fromStart = readEvents(null, 2);
+        String firstId = fromStart.get(0).lines().filter(line -> line.startsWith("id:")).findFirst().orElseThrow().substring(3);
+        List<String> resumed = readEvents(firstId, 1);
+
+        // Assert
+        Assertions.assertTrue(fromStart.get(0).contains("event:created"), fromStart.get(0));
+        Assertions.assertTrue(fromStart.get(0).contains("\"firstName\":\"Change\""), fromStart.get(0));
+        Assertions.assertTrue(fromStart.get(1).contains("event:updated"), fromStart.get(1));
+        Assertions.assertTrue(fromStart.get(1).contains("\"firstName\":\"Changed\""), fromStart.get(1));
+        Assertions.assertEquals(fromStart.get(1), resumed.get(0));
+    }
+
+    // Reads the first events sent after the given id (from the start of the journal if null).
+    private List<String> readEvents(String lastEventId, int count) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + _port + "/api/employee/changes").openConnection();
+        connection.setRequestProperty("Last-Event-ID", lastEventId == null ? "0" : lastEventId);
+        connection.setReadTimeout(10_000);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            Assertions.assertEquals(200, connection.getResponseCode());
+            Assertions.assertTrue(connection.getContentType().startsWith("text/event-stream"), connection.getContentType());
+
+            List<String> events = new ArrayList<>();
+            StringBuilder event = new StringBuilder();
+            String line;
+            while (events.size() < count && (line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    event.append(line).append('\n');
+                } else if (event.length() > 0) {
+                    events.add(event.toString());
+                    event.setLength(0);
+                }
+            }
+            return events;
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
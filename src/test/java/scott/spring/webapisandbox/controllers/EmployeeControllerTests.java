@@ -2,35 +2,67 @@ package scott.spring.webapisandbox.controllers;
 
 import org.springframework.http.MediaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import scott.spring.webapisandbox.models.Employee;
 import scott.spring.webapisandbox.repositories.EmployeeRepository;
+import scott.spring.webapisandbox.services.EmployeeCache;
+import scott.spring.webapisandbox.services.EmployeeChangeCounter;
+import scott.spring.webapisandbox.services.EmployeeChangeFeed;
+import scott.spring.webapisandbox.services.EmployeeGroupCommitService;
+import scott.spring.webapisandbox.services.EmployeeImportService;
+import scott.spring.webapisandbox.services.EmployeeLoader;
+import scott.spring.webapisandbox.services.EmployeeReadModel;
+import scott.spring.webapisandbox.services.EmployeeService;
+import scott.spring.webapisandbox.services.EmployeeShardRouter;
+import scott.spring.webapisandbox.services.EmployeeSnapshot;
+import scott.spring.webapisandbox.services.EmployeeSnapshotService;
+import scott.spring.webapisandbox.services.EmployeeStreamService;
 import scott.spring.webapisandbox.webapi.controllers.EmployeeController;
 import scott.spring.webapisandbox.webapi.models.request.EmployeeCreateRequest;
+import scott.spring.webapisandbox.webapi.models.request.EmployeePatchRequest;
 import scott.spring.webapisandbox.webapi.models.request.EmployeeUpdateRequest;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static java.util.Optional.of;
 import static org.hamcrest.Matchers.*;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
 @WebMvcTest(EmployeeController.class)
+@Import({ EmployeeService.class, EmployeeCache.class, EmployeeShardRouter.class, EmployeeChangeCounter.class, EmployeeImportService.class, EmployeeGroupCommitService.class, EmployeeChangeFeed.class, EmployeeReadModel.class, EmployeeLoader.class, SimpleMeterRegistry.class })
 public class EmployeeControllerTests {
 
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
     @Autowired
     private MockMvc _mockMvc;
 
@@ -40,10 +72,16 @@ public class EmployeeControllerTests {
     @MockBean
     private EmployeeRepository _mockEmployeeRepository;
 
+    @MockBean
+    private EmployeeStreamService _mockEmployeeStreamService;
+
+    @MockBean
+    private EmployeeSnapshotService _mockEmployeeSnapshotService;
+
     @Test
     public void given_NoEmployees_Then_GetAll_Returns_EmptyList() throws Exception {
         // Arrange
-        when(_mockEmployeeRepository.findAll()).thenReturn(new ArrayList<>());
+        when(_mockEmployeeRepository.findAllResponses()).thenReturn(new ArrayList<>());
 
         // Act / Assert
         this._mockMvc
@@ -58,8 +96,8 @@ public class EmployeeControllerTests {
     public void given_OneEmployee_Then_GetAll_Returns_ListWithOneEmployee() throws Exception {
         // Arrange
         Employee mockEmployee = new Employee(1, "TestFirst", "TestLast");
-        when(_mockEmployeeRepository.findAll()).thenReturn(new ArrayList<>() {{
-            add(mockEmployee);
+        when(_mockEmployeeRepository.findAllResponses()).thenReturn(new ArrayList<>() {{
+            add(EmployeeResponse.FromEmployee(mockEmployee));
         }});
 
         // Act
@@ -83,9 +121,9 @@ public class EmployeeControllerTests {
         // Arrange
         Employee mockEmployee1 = new Employee(1, "TestFirst1", "TestLast1");
         Employee mockEmployee2 = new Employee(2, "TestFirst2", "TestLast2");
-        when(_mockEmployeeRepository.findAll()).thenReturn(new ArrayList<>() {{
-            add(mockEmployee1);
-            add(mockEmployee2);
+        when(_mockEmployeeRepository.findAllResponses()).thenReturn(new ArrayList<>() {{
+            add(EmployeeResponse.FromEmployee(mockEmployee1));
+            add(EmployeeResponse.FromEmployee(mockEmployee2));
         }});
 
         // Act
@@ -105,11 +143,350 @@ public class EmployeeControllerTests {
         assertEmployeeResult(mockEmployee2, resultEmployees[1]);
     }
 
+    @Test
+    public void given_AcceptCbor_Then_GetAll_Returns_CborList() throws Exception {
+        // Arrange
+        Employee mockEmployee1 = new Employee(1, "TestFirst1", "TestLast1");
+        Employee mockEmployee2 = new Employee(2, "TestFirst2", "TestLast2");
+        when(_mockEmployeeRepository.findAllResponses()).thenReturn(List.of(
+            EmployeeResponse.FromEmployee(mockEmployee1),
+            EmployeeResponse.FromEmployee(mockEmployee2)
+        ));
+
+        // Act
+        MvcResult mvcResult = this._mockMvc
+            .perform(get("/api/employee").accept(MediaType.APPLICATION_CBOR))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+            .andExpect(header().string("Vary", containsString("Accept")))
+            .andReturn();
+
+        // Assert
+        ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+        Employee[] resultEmployees = cborMapper.readValue(mvcResult.getResponse().getContentAsByteArray(), Employee[].class);
+
+        Assertions.assertEquals(2, resultEmployees.length);
+        assertEmployeeResult(mockEmployee1, resultEmployees[0]);
+        assertEmployeeResult(mockEmployee2, resultEmployees[1]);
+    }
+
+    @Test
+    public void given_AcceptSmile_Then_GetById_Returns_SmileEmployee() throws Exception {
+        // Arrange
+        Employee mockEmployee = new Employee(1, "TestFirst", "TestLast", 3);
+        when(_mockEmployeeRepository.findResponseById(1)).thenReturn(of(EmployeeResponse.FromEmployee(mockEmployee)));
+
+        // Act
+        MvcResult mvcResult = this._mockMvc
+            .perform(get("/api/employee/1").accept(SMILE))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(SMILE))
+            .andReturn();
+
+        // Assert
+        ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+        Employee resultEmployee = smileMapper.readValue(mvcResult.getResponse().getContentAsByteArray(), Employee.class);
+
+        assertEmployeeResult(mockEmployee, resultEmployee);
+        Assertions.assertEquals(3, resultEmployee.getVersion());
+    }
+
+    @Test
+    public void given_SmileRequestBody_Then_Create_AddsNewEmployee_And_ReturnsCbor() throws Exception {
+        // Arrange
+        Employee mockEmployee = new Employee(1, "TestFirst", "TestLast");
+        when(_mockEmployeeRepository.save(Mockito.isA(Employee.class))).thenReturn(mockEmployee);
+        byte[] requestBody = Jackson2ObjectMapperBuilder.smile().build()
+            .writeValueAsBytes(new EmployeeCreateRequest("TestFirst", "TestLast"));
+
+        // Act
+        MvcResult mvcResult = this._mockMvc
+            .perform(post("/api/employee")
+                .content(requestBody)
+                .contentType(SMILE)
+                .accept(MediaType.APPLICATION_CBOR))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+            .andReturn();
+
+        // Assert
+        ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+        Employee resultEmployee = cborMapper.readValue(mvcResult.getResponse().getContentAsByteArray(), Employee.class);
+
+        assertEmployeeResult(mockEmployee, resultEmployee);
+    }
+
+    @Test
+    public void given_IfNoneMatchIsCurrentETag_Then_GetAll_Returns_NotModified_WithoutQuerying() throws Exception {
+        // Arrange
+        String eTag = this._mockMvc
+            .perform(get("/api/employee"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+        Mockito.clearInvocations(_mockEmployeeRepository);
+
+        // Act / Assert
+        this._mockMvc
+            .perform(get("/api/employee").header("If-None-Match", eTag))
+            .andDo(print())
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+        Mockito.verifyNoInteractions(_mockEmployeeRepository);
+    }
+
+    @Test
+    public void given_EmployeeCreatedSinceETag_Then_GetAll_Returns_List() throws Exception {
+        // Arrange
+        String eTag = this._mockMvc
+            .perform(get("/api/employee"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+        when(_mockEmployeeRepository.save(Mockito.isA(Employee.class))).thenReturn(new Employee(1, "TestFirst1", "TestLast1"));
+        this._mockMvc
+            .perform(post("/api/employee")
+                .content(_objectMapper.writeValueAsString(new EmployeeCreateRequest("TestFirst1", "TestLast1")))
+                .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk());
+
+        // Act / Assert
+        this._mockMvc
+            .perform(get("/api/employee").header("If-None-Match", eTag))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", not(eTag)));
+    }
+
+    @Test
+    public void given_SnapshotAndAcceptEncodingGzip_Then_GetAll_Returns_GzipSnapshot_WithoutQuerying() throws Exception {
+        // Arrange
+        EmployeeSnapshot snapshot = snapshot("\"5\"", "[{\"id\":1}]");
+        when(_mockEmployeeSnapshotService.getSnapshot()).thenReturn(snapshot);
+
+        // Act
+        MvcResult mvcResult = this._mockMvc
+            .perform(get("/api/employee").header("Accept-Encoding", "gzip, deflate"))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+            .andExpect(header().string("Content-Encoding", "gzip"))
+            .andExpect(header().string("ETag", "\"5-gzip\""))
+            .andExpect(header().string("Vary", containsString("Accept-Encoding")))
+            .andReturn();
+
+        // Assert
+        byte[] body = new GZIPInputStream(new ByteArrayInputStream(mvcResult.getResponse().getContentAsByteArray())).readAllBytes();
+        Assertions.assertEquals("[{\"id\":1}]", new String(body, StandardCharsets.UTF_8));
+        Mockito.verifyNoInteractions(_mockEmployeeRepository);
+    }
+
+    @Test
+    public void given_SnapshotAndNoAcceptEncoding_Then_GetAll_Returns_PlainSnapshot() throws Exception {
+        // Arrange
+        when(_mockEmployeeSnapshotService.getSnapshot()).thenReturn(snapshot("\"5\"", "[{\"id\":1}]"));
+
+        // Act / Assert
+        this._mockMvc
+            .perform(get("/api/employee").accept(MediaType.APPLICATION_JSON))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("Content-Encoding"))
+            .andExpect(header().string("ETag", "\"5\""))
+            .andExpect(content().json("[{\"id\":1}]"));
+        Mockito.verifyNoInteractions(_mockEmployeeRepository);
+    }
+
+    @Test
+    public void given_IfNoneMatchIsSnapshotGzipETag_Then_GetAll_Returns_NotModified() throws Exception {
+        // Arrange
+        when(_mockEmployeeSnapshotService.getSnapshot()).thenReturn(snapshot("\"5\"", "[]"));
+
+        // Act / Assert
+        this._mockMvc
+            .perform(get("/api/employee")
+                .header("Accept-Encoding", "gzip")
+                .header("If-None-Match", "\"5-gzip\""))
+            .andDo(print())
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+    }
+
+    @Test
+    public void given_SnapshotAndGzipRefused_Then_GetAll_Returns_PlainSnapshot() throws Exception {
+        // Arrange
+        when(_mockEmployeeSnapshotService.getSnapshot()).thenReturn(snapshot("\"5\"", "[]"));
+
+        // Act / Assert
+        this._mockMvc
+            .perform(get("/api/employee").header("Accept-Encoding", "br, gzip;q=0"))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("Content-Encoding"))
+            .andExpect(header().string("ETag", "\"5\""));
+    }
+
+    @Test
+    public void given_SnapshotAndAcceptCbor_Then_GetAll_Returns_CborList_FromRepository() throws Exception {
+        // Arrange
+        when(_mockEmployeeSnapshotService.getSnapshot()).thenReturn(snapshot("\"5\"", "[]"));
+        when(_mockEmployeeRepository.findAllResponses()).thenReturn(List.of(new EmployeeResponse(1, "TestFirst", "TestLast", 0)));
+
+        // Act / Assert
+        this._mockMvc
+            .perform(get("/api/employee").accept(MediaType.APPLICATION_CBOR).header("Accept-Encoding", "gzip"))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+            .andExpect(header().doesNotExist("Content-Encoding"));
+        Mockito.verify(_mockEmployeeRepository).findAllResponses();
+    }
+
+    @Test
+    public void given_MoreEmployeesThanLimit_Then_GetPage_Returns_LimitedPage_With_NextToken() throws Exception {
+        // Arrange
+        when(_mockEmployeeRepository.findResponsesByIdGreaterThan(Mockito.eq(0), Mockito.isA(Pageable.class))).thenReturn(List.of(
+            new EmployeeResponse(1, "TestFirst1", "TestLast1", 0),
+            new EmployeeResponse(2, "TestFirst2", "TestLast2", 0),
+            new EmployeeResponse(3, "TestFirst3", "TestLast3", 0)
+        ));
+
+        // Act / Assert
+        this._mockMvc
+            .perform(get("/api/employee").param("limit", "2"))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items", hasSize(2)))
+            .andExpect(jsonPath("$.items[0].id", is(1)))
+            .andExpect(jsonPath("$.items[1].id", is(2)))
+            .andExpect(jsonPath("$.next", notNullValue()));
+    }
+
+    @Test
+    public void given_NextToken_Then_GetPage_Returns_EmployeesAfterToken() throws Exception {
+        // Arrange
+        when(_mockEmployeeRepository.findResponsesByIdGreaterThan(Mockito.eq(0), Mockito.isA(Pageable.class))).thenReturn(List.of(
+            new EmployeeResponse(1, "TestFirst1", "TestLast1", 0),
+            new EmployeeResponse(2, "TestFirst2", "TestLast2", 0)
+        ));
+        when(_mockEmployeeRepository.findResponsesByIdGreaterThan(Mockito.eq(1), Mockito.isA(Pageable.class))).thenReturn(List.of(
+            new EmployeeResponse(2, "TestFirst2", "TestLast2", 0)
+        ));
+        MvcResult firstPage = this._mockMvc
+            .perform(get("/api/employee").param("limit", "1"))
+            .andExpect(status().isOk())
+            .andReturn();
+        String next = _objectMapper.readTree(firstPage.getResponse().getContentAsString()).get("next").asText();
+
+        // Act / Assert
+        this._mockMvc
+            .perform(get("/api/employee").param("limit", "1").param("after", next))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items", hasSize(1)))
+            .andExpect(jsonPath("$.items[0].id", is(2)))
+            .andExpect(jsonPath("$.next", nullValue()));
+    }
+
+    @Test
+    public void given_LimitIsZero_Then_GetPage_Returns_BadRequestResult() throws Exception {
+        // Act / Assert
+        this._mockMvc
+            .perform(get("/api/employee").param("limit", "0"))
+            .andDo(print())
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void given_InvalidToken_Then_GetPage_Returns_BadRequestResult() throws Exception {
+        // Act / Assert
+        this._mockMvc
+            .perform(get("/api/employee").param("limit", "10").param("after", "not-a-token"))
+            .andDo(print())
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void given_MatchingEmployees_Then_Search_Returns_Employees() throws Exception {
+        // Arrange
+        when(_mockEmployeeRepository.findResponsesByFirstNamePrefix(Mockito.eq("test%"), Mockito.isA(Pageable.class))).thenReturn(List.of(
+            new EmployeeResponse(1, "TestFirst1", "TestLast1", 0)
+        ));
+
+        // Act / Assert
+        this._mockMvc
+            .perform(get("/api/employee/search").param("q", "Test"))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0].id", is(1)));
+    }
+
+    @Test
+    public void given_BlankQuery_Then_Search_Returns_BadRequestResult() throws Exception {
+        // Act / Assert
+        this._mockMvc
+            .perform(get("/api/employee/search").param("q", " "))
+            .andDo(print())
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void given_SomeIdsMissing_Then_GetByIds_Returns_FoundInRequestedOrder_And_ListsMissing() throws Exception {
+        // Arrange
+        when(_mockEmployeeRepository.findResponsesByIdIn(Mockito.anyCollection())).thenReturn(List.of(
+            new EmployeeResponse(1, "TestFirst1", "TestLast1", 0),
+            new EmployeeResponse(3, "TestFirst3", "TestLast3", 0)
+        ));
+
+        // Act / Assert
+        this._mockMvc
+            .perform(get("/api/employee").param("ids", "3,2,1,3"))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[*].id", contains(3, 1)))
+            .andExpect(jsonPath("$.missing", contains(2)));
+        Mockito.verify(_mockEmployeeRepository).findResponsesByIdIn(List.of(3, 2, 1));
+    }
+
+    @Test
+    public void given_MoreIdsThanChunkSize_Then_Lookup_QueriesInChunks_And_KeepsRequestedOrder() throws Exception {
+        // Arrange
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1200; id >= 1; id--) {
+            ids.add(id);
+        }
+        when(_mockEmployeeRepository.findResponsesByIdIn(Mockito.anyCollection())).thenAnswer(invocation -> {
+            Collection<Integer> chunk = invocation.getArgument(0);
+            return chunk.stream().map(id -> new EmployeeResponse(id, "TestFirst", "TestLast", 0)).collect(Collectors.toList());
+        });
+
+        // Act
+        MvcResult mvcResult = this._mockMvc
+            .perform(post("/api/employee/lookup").contentType(MediaType.APPLICATION_JSON).content(_objectMapper.writeValueAsString(ids)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // Assert
+        Assertions.assertEquals(ids, JsonPath.read(mvcResult.getResponse().getContentAsString(), "$.items[*].id"));
+        Mockito.verify(_mockEmployeeRepository, Mockito.times(3)).findResponsesByIdIn(Mockito.argThat(chunk -> chunk.size() <= 500));
+    }
+
+    @Test
+    public void given_IdIsNotANumber_Then_GetByIds_Returns_BadRequestResult() throws Exception {
+        // Act / Assert
+        this._mockMvc
+            .perform(get("/api/employee").param("ids", "1,x"))
+            .andDo(print())
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void given_EmployeeExistsForSpecifiedId_Then_GetById_Returns_Employee() throws Exception {
         // Arrange
         Employee mockEmployee1 = new Employee(1, "TestFirst1", "TestLast1");
-        when(_mockEmployeeRepository.findById(Mockito.isA(Integer.class))).thenReturn(of(mockEmployee1));
+        when(_mockEmployeeRepository.findResponseById(Mockito.isA(Integer.class))).thenReturn(of(EmployeeResponse.FromEmployee(mockEmployee1)));
 
         // Act
         ResultActions resultActions = this._mockMvc
@@ -126,10 +503,68 @@ public class EmployeeControllerTests {
         assertEmployeeResult(mockEmployee1, resultEmployee);
     }
 
+    @Test
+    public void given_EmployeeExistsForSpecifiedId_Then_GetById_Returns_VersionETag() throws Exception {
+        // Arrange
+        when(_mockEmployeeRepository.findResponseById(1)).thenReturn(of(new EmployeeResponse(1, "TestFirst1", "TestLast1", 7)));
+
+        // Act / Assert
+        this._mockMvc
+            .perform(get(String.format("/api/employee/%d", 1)))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"7\""));
+    }
+
+    @Test
+    public void given_AcceptCbor_And_IfNoneMatchIsJsonETag_Then_GetById_Returns_Employee_WithCborETag() throws Exception {
+        // Arrange
+        when(_mockEmployeeRepository.findVersionById(1)).thenReturn(of(7));
+        when(_mockEmployeeRepository.findResponseById(1)).thenReturn(of(new EmployeeResponse(1, "TestFirst1", "TestLast1", 7)));
+
+        // Act / Assert
+        this._mockMvc
+            .perform(get(String.format("/api/employee/%d", 1)).accept(MediaType.APPLICATION_CBOR).header("If-None-Match", "\"7\""))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+            .andExpect(header().string("ETag", "\"7-cbor\""));
+        this._mockMvc
+            .perform(get(String.format("/api/employee/%d", 1)).accept(MediaType.APPLICATION_CBOR).header("If-None-Match", "\"7-cbor\""))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void given_IfNoneMatchIsCurrentVersion_Then_GetById_Returns_NotModified_WithoutLoadingEmployee() throws Exception {
+        // Arrange
+        when(_mockEmployeeRepository.findVersionById(1)).thenReturn(of(7));
+
+        // Act / Assert
+        this._mockMvc
+            .perform(get(String.format("/api/employee/%d", 1)).header("If-None-Match", "\"7\""))
+            .andDo(print())
+            .andExpect(status().isNotModified());
+        Mockito.verify(_mockEmployeeRepository, Mockito.never()).findResponseById(Mockito.any());
+    }
+
+    @Test
+    public void given_IfNoneMatchIsOldVersion_Then_GetById_Returns_Employee() throws Exception {
+        // Arrange
+        when(_mockEmployeeRepository.findVersionById(1)).thenReturn(of(8));
+        when(_mockEmployeeRepository.findResponseById(1)).thenReturn(of(new EmployeeResponse(1, "TestFirst1", "TestLast1", 8)));
+
+        // Act / Assert
+        this._mockMvc
+            .perform(get(String.format("/api/employee/%d", 1)).header("If-None-Match", "\"7\""))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"8\""));
+    }
+
     @Test
     public void given_EmployeeDoesNotExistForSpecifiedId_Then_GetById_Returns_NotFoundResult() throws Exception {
         // Arrange
-        when(_mockEmployeeRepository.findById(Mockito.isA(Integer.class))).thenReturn(Optional.empty());
+        when(_mockEmployeeRepository.findResponseById(Mockito.isA(Integer.class))).thenReturn(Optional.empty());
 
         // Act / Assert
         this._mockMvc
@@ -231,13 +666,54 @@ public class EmployeeControllerTests {
             .andExpect(status().isBadRequest());
     }
 
+    @Test
+    public void given_ValidAndInvalidItems_Then_CreateBatch_CreatesValidItems_And_ReportsErrors() throws Exception {
+        // Arrange
+        when(_mockEmployeeRepository.saveAll(Mockito.anyList())).thenReturn(List.of(
+            new Employee(1, "TestFirst1", "TestLast1"),
+            new Employee(2, "TestFirst3", "TestLast3")
+        ));
+        List<EmployeeCreateRequest> employeeCreateRequests = List.of(
+            new EmployeeCreateRequest("TestFirst1", "TestLast1"),
+            new EmployeeCreateRequest("TestFirst2", null),
+            new EmployeeCreateRequest("TestFirst3", "TestLast3")
+        );
+
+        // Act / Assert
+        this._mockMvc
+            .perform(post("/api/employee/batch")
+                .content(_objectMapper.writeValueAsString(employeeCreateRequests))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.created", hasSize(2)))
+            .andExpect(jsonPath("$.created[0].id", is(1)))
+            .andExpect(jsonPath("$.created[1].id", is(2)))
+            .andExpect(jsonPath("$.errors", hasSize(1)))
+            .andExpect(jsonPath("$.errors[0].index", is(1)))
+            .andExpect(jsonPath("$.errors[0].messages[0]", is("The last name must be specified")));
+        Mockito.verify(_mockEmployeeRepository).saveAll(Mockito.argThat(employees -> ((List<Employee>) employees).size() == 2));
+    }
+
+    @Test
+    public void given_EmptyBatch_Then_CreateBatch_Returns_BadRequestResult() throws Exception {
+        // Act / Assert
+        this._mockMvc
+            .perform(post("/api/employee/batch")
+                .content("[]")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+            .andDo(print())
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void given_EmployeeExistsForSpecifiedId_And_FirstAndLastNameProvided_Then_Update_UpdatesEmployee_And_ReturnsEmployee() throws Exception {
         // Arrange
-        Employee mockEmployee1Initial = new Employee(1, "TestFirst1", "TestLast1");
         Employee mockEmployee1Updated = new Employee(1, "TestFirst1Updated", "TestLast1Updated");
-        when(_mockEmployeeRepository.findById(Mockito.isA(Integer.class))).thenReturn(of(mockEmployee1Initial));
-        when(_mockEmployeeRepository.save(Mockito.isA(Employee.class))).thenReturn(mockEmployee1Updated);
+        when(_mockEmployeeRepository.updateEmployee(Mockito.eq(1), Mockito.isNull(), Mockito.anyString(), Mockito.anyString())).thenReturn(1);
+        when(_mockEmployeeRepository.findResponseById(1)).thenReturn(of(EmployeeResponse.FromEmployee(mockEmployee1Updated)));
         EmployeeUpdateRequest employeeUpdateRequest = new EmployeeUpdateRequest(mockEmployee1Updated.getFirstName(), mockEmployee1Updated.getFirstName());
 
         // Act
@@ -261,7 +737,7 @@ public class EmployeeControllerTests {
     @Test
     public void given_EmployeeDoesNotExistForSpecifiedId_Then_Update_ReturnsNotFoundResult() throws Exception {
         // Arrange
-        when(_mockEmployeeRepository.findById(Mockito.isA(Integer.class))).thenReturn(Optional.empty());
+        when(_mockEmployeeRepository.updateEmployee(Mockito.eq(2), Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(0);
         EmployeeUpdateRequest employeeUpdateRequest = new EmployeeUpdateRequest("TestFirst1Updated", "TestLast1Updated");
 
         // Act / Assert
@@ -274,6 +750,89 @@ public class EmployeeControllerTests {
             .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void given_VersionMatches_Then_Update_Returns_EmployeeWithNextVersion() throws Exception {
+        // Arrange
+        when(_mockEmployeeRepository.updateEmployee(1, 4, "TestFirst1Updated", "TestLast1Updated")).thenReturn(1);
+        EmployeeUpdateRequest employeeUpdateRequest = new EmployeeUpdateRequest("TestFirst1Updated", "TestLast1Updated", 4);
+
+        // Act / Assert
+        this._mockMvc
+            .perform(put(String.format("/api/employee/%d", 1))
+                .content(_objectMapper.writeValueAsString(employeeUpdateRequest))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.firstName", is("TestFirst1Updated")))
+            .andExpect(jsonPath("$.version", is(5)));
+        Mockito.verify(_mockEmployeeRepository, Mockito.never()).findResponseById(Mockito.any());
+    }
+
+    @Test
+    public void given_VersionDoesNotMatch_Then_Update_Returns_ConflictResult() throws Exception {
+        // Arrange
+        when(_mockEmployeeRepository.updateEmployee(Mockito.eq(1), Mockito.eq(3), Mockito.any(), Mockito.any())).thenReturn(0);
+        when(_mockEmployeeRepository.existsById(1)).thenReturn(true);
+        EmployeeUpdateRequest employeeUpdateRequest = new EmployeeUpdateRequest("TestFirst1Updated", "TestLast1Updated", 3);
+
+        // Act / Assert
+        this._mockMvc
+            .perform(put(String.format("/api/employee/%d", 1))
+                .content(_objectMapper.writeValueAsString(employeeUpdateRequest))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+            .andDo(print())
+            .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void given_OnlyFirstNameProvided_Then_Patch_UpdatesFirstNameOnly() throws Exception {
+        // Arrange
+        when(_mockEmployeeRepository.updateEmployee(1, null, "TestFirst1Updated", null)).thenReturn(1);
+        when(_mockEmployeeRepository.findResponseById(1)).thenReturn(of(new EmployeeResponse(1, "TestFirst1Updated", "TestLast1", 1)));
+        EmployeePatchRequest employeePatchRequest = new EmployeePatchRequest("TestFirst1Updated", null, null);
+
+        // Act / Assert
+        this._mockMvc
+            .perform(patch(String.format("/api/employee/%d", 1))
+                .content(_objectMapper.writeValueAsString(employeePatchRequest))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.firstName", is("TestFirst1Updated")))
+            .andExpect(jsonPath("$.lastName", is("TestLast1")));
+        Mockito.verify(_mockEmployeeRepository).updateEmployee(1, null, "TestFirst1Updated", null);
+    }
+
+    @Test
+    public void given_NoFieldsProvided_Then_Patch_Returns_BadRequestResult() throws Exception {
+        // Act / Assert
+        this._mockMvc
+            .perform(patch(String.format("/api/employee/%d", 1))
+                .content("{}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+            .andDo(print())
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void given_BlankLastName_Then_Patch_Returns_BadRequestResult() throws Exception {
+        // Arrange
+        EmployeePatchRequest employeePatchRequest = new EmployeePatchRequest(null, " ", null);
+
+        // Act / Assert
+        this._mockMvc
+            .perform(patch(String.format("/api/employee/%d", 1))
+                .content(_objectMapper.writeValueAsString(employeePatchRequest))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+            .andDo(print())
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void given_EmployeeExistsForSpecifiedId_And_RequestNotProvided_Then_Update_ReturnsBadRequestResult() throws Exception {
         // Arrange
@@ -325,6 +884,15 @@ public class EmployeeControllerTests {
             .andExpect(status().isBadRequest());
     }
 
+    private static EmployeeSnapshot snapshot(String eTag, String json) throws Exception {
+        byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(jsonBytes);
+        }
+        return new EmployeeSnapshot(eTag, jsonBytes, compressed.toByteArray());
+    }
+
     private void assertEmployeeResult(Employee expected, Employee actual) {
         Assertions.assertNotNull(actual);
         Assertions.assertEquals(expected.getId(), actual.getId());
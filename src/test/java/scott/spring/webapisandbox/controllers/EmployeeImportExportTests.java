@@ -0,0 +1,141 @@
+package scott.spring.webapisandbox.controllers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeImportResponse;
+
+import java.util.List;
+
+// A chunk size of 2 makes every import here span several chunks.
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = { "app.import.chunk-size=2", "app.import.max-errors=2" }
+)
+public class EmployeeImportExportTests {
+
+    private static final MediaType NDJSON = MediaType.valueOf("application/x-ndjson");
+    private static final MediaType TEXT_CSV = MediaType.valueOf("text/csv");
+
+    @Autowired
+    private TestRestTemplate _restTemplate;
+
+    @Test
+    public void given_NdjsonWithInvalidLines_Then_Import_CreatesValidRecords_And_ReportsLineErrors() {
+        // Arrange
+        String body = "{\"firstName\":\"Ada\",\"lastName\":\"Ndjson\"}\n"
+            + "{\"firstName\":\"\",\"lastName\":\"Ndjson\"}\n"
+            + "\n"
+            + "{\"firstName\":\"Grace\",\"lastName\":\"Ndjson\"}\r\n"
+            + "{not json\n"
+            + "{\"firstName\":\"Alan\",\"lastName\":\"Ndjson\"}";
+
+        // Act
+        ResponseEntity<EmployeeImportResponse> response = importBody(body, NDJSON);
+
+        // Assert
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        EmployeeImportResponse result = response.getBody();
+        Assertions.assertEquals(5, result.getRecordCount());
+        Assertions.assertEquals(3, result.getImportedCount());
+        Assertions.assertEquals(2, result.getFailedCount());
+        Assertions.assertEquals(2, result.getErrors().get(0).getLine());
+        Assertions.assertEquals(List.of("The first name must be specified"), result.getErrors().get(0).getMessages());
+        Assertions.assertEquals(5, result.getErrors().get(1).getLine());
+        Assertions.assertTrue(result.getErrors().get(1).getMessages().get(0).startsWith("Invalid JSON"));
+        Assertions.assertFalse(result.isErrorsTruncated());
+
+        String export = export(NDJSON);
+        Assertions.assertTrue(export.contains("\"firstName\":\"Grace\",\"lastName\":\"Ndjson\""));
+        Assertions.assertTrue(export.contains("\"firstName\":\"Alan\",\"lastName\":\"Ndjson\""));
+    }
+
+    @Test
+    public void given_CsvWithQuotedFields_Then_Import_CreatesRecords_And_Export_RoundTrips() {
+        // Arrange
+        String body = "lastName,firstName,department\n"
+            + "Csv,Edsger,Research\n"
+            + "\"Csv, Jr.\",\"Donald \"\"Don\"\"\",Research\n";
+
+        // Act
+        ResponseEntity<EmployeeImportResponse> response = importBody(body, TEXT_CSV);
+
+        // Assert
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assertions.assertEquals(2, response.getBody().getImportedCount());
+
+        String export = export(TEXT_CSV);
+        Assertions.assertTrue(export.startsWith("id,firstName,lastName,version\n"));
+        Assertions.assertTrue(export.contains(",Edsger,Csv,0\n"));
+        Assertions.assertTrue(export.contains(",\"Donald \"\"Don\"\"\",\"Csv, Jr.\",0\n"));
+    }
+
+    @Test
+    public void given_MoreErrorsThanLimit_Then_Import_CountsAll_And_TruncatesList() {
+        // Arrange
+        String body = "firstName,lastName\n,A\n,B\n,C\nKen,Truncated\n";
+
+        // Act
+        EmployeeImportResponse result = importBody(body, TEXT_CSV).getBody();
+
+        // Assert
+        Assertions.assertEquals(1, result.getImportedCount());
+        Assertions.assertEquals(3, result.getFailedCount());
+        Assertions.assertEquals(2, result.getErrors().size());
+        Assertions.assertTrue(result.isErrorsTruncated());
+    }
+
+    @Test
+    public void given_CsvWithoutNameColumns_Then_Import_Returns_BadRequestResult() {
+        // Act
+        ResponseEntity<String> response = _restTemplate.exchange(
+            "/api/employee/import", HttpMethod.POST, new HttpEntity<>("first,last\nA,B\n", headers(TEXT_CSV)), String.class);
+
+        // Assert
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void given_AcceptJson_Then_Export_Returns_NotAcceptable() {
+        // Arrange
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+
+        // Act
+        ResponseEntity<String> response = _restTemplate.exchange(
+            "/api/employee/export", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        // Assert
+        Assertions.assertEquals(HttpStatus.NOT_ACCEPTABLE, response.getStatusCode());
+    }
+
+    private ResponseEntity<EmployeeImportResponse> importBody(String body, MediaType contentType) {
+        return _restTemplate.exchange(
+            "/api/employee/import", HttpMethod.POST, new HttpEntity<>(body, headers(contentType)), EmployeeImportResponse.class);
+    }
+
+    private String export(MediaType accept) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(accept));
+        ResponseEntity<String> response = _restTemplate.exchange(
+            "/api/employee/export", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assertions.assertTrue(accept.isCompatibleWith(response.getHeaders().getContentType()));
+        return response.getBody();
+    }
+
+    private static HttpHeaders headers(MediaType contentType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        return headers;
+    }
+}
@@ -0,0 +1,187 @@
+package scott.spring.webapisandbox.controllers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import scott.spring.webapisandbox.webapi.controllers.EmployeeController;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeCreateRequest;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeUpdateRequest;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import java.util.List;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+public class ReactiveEmployeeControllerTests {
+
+    @Autowired
+    private ReactiveWebServerApplicationContext _context;
+
+    @Autowired
+    private WebTestClient _webTestClient;
+
+    @Test
+    public void given_ReactiveProfile_Then_OnlyReactiveControllerIsRegistered_OnNetty() {
+        // Assert
+        Assertions.assertTrue(_context.getWebServer() instanceof NettyWebServer);
+        Assertions.assertTrue(_context.getBeansOfType(EmployeeController.class).isEmpty());
+    }
+
+    @Test
+    public void given_CreatedEmployee_Then_GetById_Returns_EmployeeWithVersionETag() {
+        // Arrange
+        EmployeeResponse created = create("Ada", "Lovelace");
+
+        // Act / Assert
+        _webTestClient.get().uri("/api/employee/{id}", created.getId())
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals("ETag", "\"0\"")
+            .expectBody()
+            .jsonPath("$.id").isEqualTo(created.getId())
+            .jsonPath("$.firstName").isEqualTo("Ada")
+            .jsonPath("$.lastName").isEqualTo("Lovelace")
+            .jsonPath("$.version").isEqualTo(0);
+
+        _webTestClient.get().uri("/api/employee/{id}", created.getId())
+            .header("If-None-Match", "\"0\"")
+            .exchange()
+            .expectStatus().isNotModified();
+    }
+
+    @Test
+    public void given_MissingEmployee_Then_GetById_Returns_NotFound() {
+        // Act / Assert
+        _webTestClient.get().uri("/api/employee/{id}", Integer.MAX_VALUE)
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void given_CreatedEmployees_Then_GetAll_Streams_JsonArrayInIdOrder() {
+        // Arrange
+        EmployeeResponse first = create("Grace", "Hopper");
+        EmployeeResponse second = create("Alan", "Turing");
+
+        // Act
+        List<EmployeeResponse> employees = _webTestClient.get().uri("/api/employee")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.APPLICATION_JSON)
+            .expectBodyList(EmployeeResponse.class)
+            .returnResult()
+            .getResponseBody();
+
+        // Assert
+        Assertions.assertNotNull(employees);
+        Assertions.assertTrue(employees.stream().anyMatch(e -> e.getId().equals(first.getId()) && e.getLastName().equals("Hopper")));
+        Assertions.assertTrue(employees.stream().anyMatch(e -> e.getId().equals(second.getId()) && e.getLastName().equals("Turing")));
+        for (int i = 1; i < employees.size(); i++) {
+            Assertions.assertTrue(employees.get(i - 1).getId() < employees.get(i).getId());
+        }
+    }
+
+    @Test
+    public void given_UnchangedEmployees_Then_GetAll_Returns_NotModified() {
+        // Arrange
+        create("Edsger", "Dijkstra");
+        String eTag = _webTestClient.get().uri("/api/employee")
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(String.class)
+            .getResponseHeaders()
+            .getETag();
+
+        // Act / Assert
+        _webTestClient.get().uri("/api/employee")
+            .header("If-None-Match", eTag)
+            .exchange()
+            .expectStatus().isNotModified();
+    }
+
+    @Test
+    public void given_CurrentVersion_Then_Update_Returns_UpdatedEmployee() {
+        // Arrange
+        EmployeeResponse created = create("Barbara", "Liskov");
+
+        // Act / Assert
+        _webTestClient.put().uri("/api/employee/{id}", created.getId())
+            .bodyValue(new EmployeeUpdateRequest("Barbara", "Liskov-Updated", 0))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.lastName").isEqualTo("Liskov-Updated")
+            .jsonPath("$.version").isEqualTo(1);
+
+        _webTestClient.get().uri("/api/employee/{id}", created.getId())
+            .exchange()
+            .expectBody()
+            .jsonPath("$.lastName").isEqualTo("Liskov-Updated")
+            .jsonPath("$.version").isEqualTo(1);
+    }
+
+    @Test
+    public void given_StaleVersion_Then_Update_Returns_Conflict() {
+        // Arrange
+        EmployeeResponse created = create("Donald", "Knuth");
+        _webTestClient.put().uri("/api/employee/{id}", created.getId())
+            .bodyValue(new EmployeeUpdateRequest("Donald", "Knuth", 0))
+            .exchange()
+            .expectStatus().isOk();
+
+        // Act / Assert
+        _webTestClient.put().uri("/api/employee/{id}", created.getId())
+            .bodyValue(new EmployeeUpdateRequest("Don", "Knuth", 0))
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    public void given_MissingEmployee_Then_Update_Returns_NotFound() {
+        // Act / Assert
+        _webTestClient.put().uri("/api/employee/{id}", Integer.MAX_VALUE)
+            .bodyValue(new EmployeeUpdateRequest("No", "One"))
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void given_MixedBatch_Then_CreateBatch_Returns_CreatedAndErrors() {
+        // Act / Assert
+        _webTestClient.post().uri("/api/employee/batch")
+            .bodyValue(List.of(new EmployeeCreateRequest("Katherine", "Johnson"), new EmployeeCreateRequest("", "Vaughan")))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.created.length()").isEqualTo(1)
+            .jsonPath("$.created[0].lastName").isEqualTo("Johnson")
+            .jsonPath("$.errors[0].index").isEqualTo(1);
+    }
+
+    @Test
+    public void given_BlankName_Then_Create_Returns_BadRequest() {
+        // Act / Assert
+        _webTestClient.post().uri("/api/employee")
+            .bodyValue(new EmployeeCreateRequest("", "Nobody"))
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
+    private EmployeeResponse create(String firstName, String lastName) {
+        return _webTestClient.post().uri("/api/employee")
+            .bodyValue(new EmployeeCreateRequest(firstName, lastName))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(EmployeeResponse.class)
+            .returnResult()
+            .getResponseBody();
+    }
+}
@@ -0,0 +1,135 @@
+package scott.spring.webapisandbox.filters;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import scott.spring.webapisandbox.webapi.filters.AdaptiveConcurrencyLimit;
+import scott.spring.webapisandbox.webapi.filters.AdaptiveConcurrencyLimitFilter;
+
+import javax.servlet.ServletException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class AdaptiveConcurrencyLimitFilterTests {
+
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    public void given_ReadLimitInUse_Then_Filter_RejectsReads_WithRetryAfter_But_AdmitsWrites() throws Exception {
+        // Arrange
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AdaptiveConcurrencyLimitFilter filter = new AdaptiveConcurrencyLimitFilter(
+            new AdaptiveConcurrencyLimit(1, 1, 1), new AdaptiveConcurrencyLimit(1, 1, 1), HttpStatus.TOO_MANY_REQUESTS, meterRegistry, Set.of());
+        MockHttpServletResponse rejectedRead = new MockHttpServletResponse();
+        MockHttpServletResponse admittedWrite = new MockHttpServletResponse();
+        boolean[] writeHandled = new boolean[1];
+
+        // Act: the other requests arrive while the first read is still being handled.
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/employee"), new MockHttpServletResponse(), (request, response) -> {
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/employee/1"), rejectedRead, (r, s) -> Assertions.fail("Should not be called"));
+            filter.doFilter(new MockHttpServletRequest("POST", "/api/employee"), admittedWrite, (r, s) -> writeHandled[0] = true);
+        });
+        MockHttpServletResponse laterRead = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/employee/1"), laterRead, (request, response) -> { });
+
+        // Assert
+        Assertions.assertEquals(429, rejectedRead.getStatus());
+        Assertions.assertEquals("1", rejectedRead.getHeader("Retry-After"));
+        Assertions.assertTrue(writeHandled[0]);
+        Assertions.assertEquals(200, admittedWrite.getStatus());
+        Assertions.assertEquals(200, laterRead.getStatus());
+        Assertions.assertEquals(1.0, meterRegistry.get("http.admission.rejected").tag("route", "read").counter().count());
+        Assertions.assertEquals(0.0, meterRegistry.get("http.admission.rejected").tag("route", "write").counter().count());
+        Assertions.assertEquals(0.0, meterRegistry.get("http.admission.in.flight").tag("route", "read").gauge().value());
+    }
+
+    @Test
+    public void given_ExcludedPath_Then_Filter_AdmitsIt_WithoutTakingASlot() throws Exception {
+        // Arrange
+        AdaptiveConcurrencyLimit readLimit = new AdaptiveConcurrencyLimit(1, 1, 1);
+        AdaptiveConcurrencyLimitFilter filter = new AdaptiveConcurrencyLimitFilter(
+            readLimit, new AdaptiveConcurrencyLimit(1, 1, 1), HttpStatus.SERVICE_UNAVAILABLE, new SimpleMeterRegistry(), Set.of("/api/employee/changes"));
+        MockHttpServletRequest subscription = new MockHttpServletRequest("GET", "/api/employee/changes");
+        subscription.setAsyncSupported(true);
+        MockHttpServletResponse read = new MockHttpServletResponse();
+
+        // Act: the subscription stays open while another read arrives.
+        filter.doFilter(subscription, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/employee/1"), read, (request, response) -> { });
+
+        // Assert
+        Assertions.assertEquals(200, read.getStatus());
+        Assertions.assertEquals(0, readLimit.getInFlight());
+    }
+
+    @Test
+    public void given_SteadyLatencyAtTheLimit_Then_Limit_Grows() {
+        // Arrange
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 1, 1000);
+
+        // Act
+        long now = 0;
+        for (int window = 0; window < 10; window++) {
+            now += 2 * WINDOW_NANOS;
+            runWindow(limit, limit.getLimit(), TimeUnit.MILLISECONDS.toNanos(10), now);
+        }
+
+        // Assert
+        Assertions.assertTrue(limit.getLimit() > 20, "limit was " + limit.getLimit());
+    }
+
+    @Test
+    public void given_LatencyGrowsWithQueueing_Then_Limit_SettlesNearCapacity() {
+        // Arrange: a service that handles 20 requests at once in 10ms; more than that queue.
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(50, 4, 1000);
+
+        // Act
+        long now = 0;
+        for (int window = 0; window < 300; window++) {
+            now += 2 * WINDOW_NANOS;
+            int concurrency = limit.getLimit();
+            runWindow(limit, concurrency, TimeUnit.MILLISECONDS.toNanos(10) * Math.max(20, concurrency) / 20, now);
+        }
+
+        // Assert
+        Assertions.assertTrue(limit.getLimit() >= 10 && limit.getLimit() <= 40, "limit was " + limit.getLimit());
+    }
+
+    @Test
+    public void given_RequestFailsWithException_Then_Filter_BacksOffLimit() throws Exception {
+        // Arrange
+        AdaptiveConcurrencyLimit writeLimit = new AdaptiveConcurrencyLimit(100, 1, 1000);
+        AdaptiveConcurrencyLimitFilter filter = new AdaptiveConcurrencyLimitFilter(
+            new AdaptiveConcurrencyLimit(100, 1, 1000), writeLimit, HttpStatus.SERVICE_UNAVAILABLE, new SimpleMeterRegistry(), Set.of());
+
+        // Act: the second failure closes the sample window the first one opened.
+        failWrite(filter);
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(WINDOW_NANOS) + 10);
+        failWrite(filter);
+
+        // Assert
+        Assertions.assertEquals(90, writeLimit.getLimit());
+        Assertions.assertEquals(0, writeLimit.getInFlight());
+    }
+
+    private static void failWrite(AdaptiveConcurrencyLimitFilter filter) {
+        Assertions.assertThrows(ServletException.class, () -> filter.doFilter(
+            new MockHttpServletRequest("PUT", "/api/employee/1"), new MockHttpServletResponse(), (request, response) -> {
+                throw new ServletException("Could not open JPA EntityManager for transaction");
+            }));
+    }
+
+    // Runs one sample window: the first request finishes as it opens and the rest as it closes.
+    private static void runWindow(AdaptiveConcurrencyLimit limit, int concurrency, long rttNanos, long startNanos) {
+        for (int i = 0; i < concurrency; i++) {
+            Assertions.assertTrue(limit.tryAcquire());
+        }
+        limit.release(rttNanos, startNanos);
+        for (int i = 1; i < concurrency; i++) {
+            limit.release(rttNanos, startNanos + WINDOW_NANOS);
+        }
+    }
+}
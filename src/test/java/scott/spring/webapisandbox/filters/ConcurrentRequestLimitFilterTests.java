@@ -0,0 +1,70 @@
+package scott.spring.webapisandbox.filters;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import scott.spring.webapisandbox.webapi.filters.ConcurrentRequestLimitFilter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrentRequestLimitFilterTests {
+
+    @Test
+    public void given_LimitReached_Then_Filter_Returns_ServiceUnavailable_WithRetryAfter() throws Exception {
+        // Arrange
+        ConcurrentRequestLimitFilter filter = new ConcurrentRequestLimitFilter(1, 10);
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("GET", "/api/employee"), new MockHttpServletResponse(), (request, response) -> {
+                    inFlight.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        holder.start();
+        Assertions.assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+
+        // Act
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/employee"), rejected, (request, response) -> Assertions.fail("Should not be called"));
+        release.countDown();
+        holder.join();
+        MockHttpServletResponse accepted = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/employee"), accepted, (request, response) -> { });
+
+        // Assert
+        Assertions.assertEquals(503, rejected.getStatus());
+        Assertions.assertEquals("1", rejected.getHeader("Retry-After"));
+        Assertions.assertEquals(200, accepted.getStatus());
+    }
+
+    @Test
+    public void given_AsyncResponse_Then_Filter_HoldsItsPermit_UntilTheResponseCompletes() throws Exception {
+        // Arrange
+        ConcurrentRequestLimitFilter filter = new ConcurrentRequestLimitFilter(1, 10);
+        MockHttpServletRequest streaming = new MockHttpServletRequest("GET", "/api/employee/export");
+        streaming.setAsyncSupported(true);
+        filter.doFilter(streaming, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+
+        // Act
+        MockHttpServletResponse whileStreaming = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/employee"), whileStreaming, (request, response) -> Assertions.fail("Should not be called"));
+        streaming.getAsyncContext().complete();
+        MockHttpServletResponse afterStreaming = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/employee"), afterStreaming, (request, response) -> { });
+
+        // Assert
+        Assertions.assertEquals(503, whileStreaming.getStatus());
+        Assertions.assertEquals(200, afterStreaming.getStatus());
+    }
+}
@@ -0,0 +1,166 @@
+package scott.spring.webapisandbox.repositories;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import scott.spring.webapisandbox.models.Employee;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@DataJpaTest
+public class EmployeeRepositoryTests {
+
+    @Autowired
+    private EmployeeRepository _employeeRepository;
+
+    @Autowired
+    private EntityManager _entityManager;
+
+    private List<Employee> _employees;
+
+    @BeforeEach
+    public void seed() {
+        _employees = _employeeRepository.saveAll(List.of(
+            new Employee(null, "TestFirst1", "TestLast1"),
+            new Employee(null, "TestFirst2", "TestLast2"),
+            new Employee(null, "TestFirst3", "TestLast3")
+        ));
+        _entityManager.flush();
+        _entityManager.clear();
+    }
+
+    @Test
+    public void given_EmployeeExists_Then_FindResponseById_Returns_Projection_WithoutManagingEntity() {
+        // Act
+        Optional<EmployeeResponse> result = _employeeRepository.findResponseById(_employees.get(1).getId());
+
+        // Assert
+        Assertions.assertTrue(result.isPresent());
+        Assertions.assertEquals(_employees.get(1).getId(), result.get().getId());
+        Assertions.assertEquals("TestFirst2", result.get().getFirstName());
+        Assertions.assertEquals("TestLast2", result.get().getLastName());
+        Assertions.assertEquals(0, _entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    public void given_Employees_Then_FindResponsesByIdGreaterThan_Returns_NextKeysetPage() {
+        // Act
+        List<EmployeeResponse> result = _employeeRepository.findResponsesByIdGreaterThan(_employees.get(0).getId(), PageRequest.of(0, 1));
+
+        // Assert
+        Assertions.assertEquals(1, result.size());
+        Assertions.assertEquals(_employees.get(1).getId(), result.get(0).getId());
+    }
+
+    @Test
+    public void given_Employees_Then_StreamAllResponses_Returns_AllInIdOrder() {
+        // Act
+        List<Integer> ids;
+        try (Stream<EmployeeResponse> stream = _employeeRepository.streamAllResponses()) {
+            ids = stream.map(EmployeeResponse::getId).collect(Collectors.toList());
+        }
+
+        // Assert
+        Assertions.assertEquals(_employees.stream().map(Employee::getId).collect(Collectors.toList()), ids);
+    }
+
+    @Test
+    public void given_VersionMatches_Then_UpdateEmployee_UpdatesRow_And_IncrementsVersion() {
+        // Arrange
+        Employee employee = _employees.get(0);
+
+        // Act
+        int updated = _employeeRepository.updateEmployee(employee.getId(), employee.getVersion(), "TestFirst1Updated", null);
+        _entityManager.clear();
+
+        // Assert
+        Assertions.assertEquals(1, updated);
+        EmployeeResponse result = _employeeRepository.findResponseById(employee.getId()).orElseThrow();
+        Assertions.assertEquals("TestFirst1Updated", result.getFirstName());
+        Assertions.assertEquals("TestLast1", result.getLastName());
+        Assertions.assertEquals(employee.getVersion() + 1, result.getVersion());
+    }
+
+    @Test
+    public void given_VersionDoesNotMatch_Then_UpdateEmployee_UpdatesNothing() {
+        // Arrange
+        Employee employee = _employees.get(0);
+
+        // Act
+        int updated = _employeeRepository.updateEmployee(employee.getId(), employee.getVersion() + 1, "TestFirst1Updated", "TestLast1Updated");
+
+        // Assert
+        Assertions.assertEquals(0, updated);
+    }
+
+    @Test
+    public void given_MixedCaseNames_Then_FindResponsesByFirstNamePrefix_MatchesIgnoringCase_InNameOrder() {
+        // Arrange
+        _employeeRepository.saveAll(List.of(
+            new Employee(null, "Alice", "Zed"),
+            new Employee(null, "alfred", "Young"),
+            new Employee(null, "Bob", "Alder")
+        ));
+
+        // Act
+        List<EmployeeResponse> result = _employeeRepository.findResponsesByFirstNamePrefix("al%", PageRequest.of(0, 10));
+
+        // Assert
+        Assertions.assertEquals(List.of("alfred", "Alice"), result.stream().map(EmployeeResponse::getFirstName).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void given_NameSearch_Then_QueryPlan_Uses_NameIndex() {
+        // Act
+        String plan = (String) _entityManager
+            .createNativeQuery("explain select id from employees where last_name_search like ? escape '!' order by last_name_search, id limit 20")
+            .setParameter(1, "testl%")
+            .getSingleResult();
+
+        // Assert
+        Assertions.assertTrue(plan.toUpperCase().contains("IX_EMPLOYEES_LAST_NAME_SEARCH"), plan);
+    }
+
+    @Test
+    public void given_PresetIds_Then_InsertWithIds_KeepsThem_And_BatchesTheInserts_WithoutLookups() {
+        // Arrange
+        int firstId = _employees.get(2).getId() + 1000;
+        List<Employee> employees = List.of(
+            new Employee(firstId, "Preset1", "Id"),
+            new Employee(firstId + 1, "Preset2", "Id"),
+            new Employee(firstId + 2, "Preset3", "Id")
+        );
+        Statistics statistics = _entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        // Act
+        try {
+            _employeeRepository.insertWithIds(employees);
+            _entityManager.flush();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+        _entityManager.clear();
+
+        // Assert: one prepared insert for the batch, and no select or sequence call per row.
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(3, statistics.getEntityInsertCount());
+        for (int i = 0; i < 3; i++) {
+            EmployeeResponse result = _employeeRepository.findResponseById(firstId + i).orElseThrow();
+            Assertions.assertEquals("Preset" + (i + 1), result.getFirstName());
+            Assertions.assertEquals(0, result.getVersion());
+        }
+    }
+}
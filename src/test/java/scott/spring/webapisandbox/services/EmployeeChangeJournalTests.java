@@ -0,0 +1,106 @@
+package scott.spring.webapisandbox.services;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import scott.spring.webapisandbox.services.EmployeeChangeJournal.ChangeType;
+import scott.spring.webapisandbox.services.EmployeeChangeJournal.Entry;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Segments of 200 bytes hold four of these entries, so a few dozen appends roll many times.
+public class EmployeeChangeJournalTests {
+
+    private static final int SEGMENT_BYTES = 200;
+    private static final int MAX_SEALED_SEGMENTS = 2;
+
+    @TempDir
+    Path _directory;
+
+    @Test
+    public void given_MoreSegmentsThanAllowed_Then_Journal_CompactsToLatestChangePerEmployee() throws Exception {
+        // Arrange
+        EmployeeChangeJournal journal = new EmployeeChangeJournal(_directory, SEGMENT_BYTES, MAX_SEALED_SEGMENTS);
+        journal.append(ChangeType.CREATED, 4, 0, data(4, 0));
+        EmployeeChangeJournal.Cursor laggingCursor = journal.cursorAfter(0);
+        Assertions.assertEquals(1, laggingCursor.next(1).size());
+
+        // Act: ten versions of each of three employees.
+        for (int version = 0; version < 10; version++) {
+            for (int employeeId = 1; employeeId <= 3; employeeId++) {
+                journal.append(version == 0 ? ChangeType.CREATED : ChangeType.UPDATED, employeeId, version, data(employeeId, version));
+            }
+        }
+        awaitSegmentCount(journal, MAX_SEALED_SEGMENTS + 1);
+
+        // Assert
+        Assertions.assertEquals(31, journal.getLastSequence());
+        List<Entry> fromStart = journal.cursorAfter(0).next(100);
+        Assertions.assertTrue(fromStart.size() < 31, "read " + fromStart.size());
+        assertIncreasingSequences(fromStart);
+        Map<Integer, Entry> latest = latestByEmployee(fromStart);
+        Assertions.assertEquals(1, latest.get(4).getSequence());
+        for (int employeeId = 1; employeeId <= 3; employeeId++) {
+            Assertions.assertEquals(9, latest.get(employeeId).getVersion());
+            Assertions.assertEquals(new String(data(employeeId, 9), StandardCharsets.UTF_8), new String(latest.get(employeeId).getData(), StandardCharsets.UTF_8));
+        }
+
+        // A cursor whose segment was compacted away carries on after the last entry it returned.
+        List<Entry> lagging = laggingCursor.next(100);
+        Assertions.assertTrue(lagging.get(0).getSequence() > 1);
+        Assertions.assertEquals(31, lagging.get(lagging.size() - 1).getSequence());
+        assertIncreasingSequences(lagging);
+        journal.close();
+    }
+
+    @Test
+    public void given_ReopenedDirectory_Then_Journal_CarriesOnAfterTheLastSequence() throws Exception {
+        // Arrange
+        EmployeeChangeJournal journal = new EmployeeChangeJournal(_directory, SEGMENT_BYTES, 100);
+        for (int i = 1; i <= 6; i++) {
+            journal.append(ChangeType.CREATED, i, 0, data(i, 0));
+        }
+        journal.close();
+
+        // Act
+        EmployeeChangeJournal reopened = new EmployeeChangeJournal(_directory, SEGMENT_BYTES, 100);
+        long appended = reopened.append(ChangeType.UPDATED, 2, 1, data(2, 1));
+
+        // Assert
+        Assertions.assertEquals(7, appended);
+        List<Entry> afterFour = reopened.cursorAfter(4).next(100);
+        Assertions.assertEquals(List.of(5L, 6L, 7L), afterFour.stream().map(Entry::getSequence).collect(Collectors.toList()));
+        Assertions.assertEquals(ChangeType.UPDATED, afterFour.get(2).getType());
+        Assertions.assertEquals(2, afterFour.get(2).getEmployeeId());
+        Assertions.assertFalse(reopened.awaitAfter(7, 10));
+        reopened.close();
+    }
+
+    private static byte[] data(int employeeId, int version) {
+        return String.format("{\"id\":%d,\"version\":%d}", employeeId, version).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void awaitSegmentCount(EmployeeChangeJournal journal, int count) throws InterruptedException {
+        for (int i = 0; i < 100 && journal.getSegmentCount() > count; i++) {
+            Thread.sleep(50);
+        }
+        Assertions.assertTrue(journal.getSegmentCount() <= count, journal.getSegmentCount() + " segments");
+    }
+
+    private static void assertIncreasingSequences(List<Entry> entries) {
+        for (int i = 1; i < entries.size(); i++) {
+            Assertions.assertTrue(entries.get(i).getSequence() > entries.get(i - 1).getSequence());
+        }
+    }
+
+    private static Map<Integer, Entry> latestByEmployee(List<Entry> entries) {
+        Map<Integer, Entry> latest = new HashMap<>();
+        entries.forEach(entry -> latest.put(entry.getEmployeeId(), entry));
+        return latest;
+    }
+}
@@ -0,0 +1,133 @@
+package scott.spring.webapisandbox.services;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import scott.spring.webapisandbox.exceptions.EmployeeNotFoundException;
+import scott.spring.webapisandbox.exceptions.EmployeeVersionConflictException;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeCreateRequest;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeUpdateRequest;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// A long window makes writes submitted together land in the same batch.
+@SpringBootTest(properties = {
+    "app.group-commit.enabled=true",
+    "app.group-commit.max-batch-size=8",
+    "app.group-commit.window-ms=300"
+})
+public class EmployeeGroupCommitServiceTests {
+
+    @Autowired
+    private EmployeeGroupCommitService _groupCommitService;
+
+    @Autowired
+    private EmployeeService _employeeService;
+
+    @Autowired
+    private MeterRegistry _meterRegistry;
+
+    @Test
+    public void given_ConcurrentCreates_Then_Create_CommitsThemTogether_And_ReturnsEachResult() throws Exception {
+        // Arrange
+        List<Callable<EmployeeResponse>> creates = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            EmployeeCreateRequest request = new EmployeeCreateRequest("Group" + i, "Commit");
+            creates.add(() -> _groupCommitService.create(request));
+        }
+
+        // Act
+        List<EmployeeResponse> results = getAll(runTogether(creates));
+
+        // Assert
+        Assertions.assertEquals(8, results.stream().map(EmployeeResponse::getId).distinct().count());
+        for (int i = 0; i < 8; i++) {
+            Assertions.assertEquals("Group" + i, results.get(i).getFirstName());
+            Assertions.assertEquals(results.get(i).getId(), _employeeService.getById(results.get(i).getId()).get().getId());
+        }
+        Assertions.assertTrue(batchSize().max() > 1);
+    }
+
+    @Test
+    public void given_BatchWithConflictingAndMissingUpdates_Then_OnlyThoseWrites_Fail() throws Exception {
+        // Arrange
+        EmployeeResponse first = _employeeService.create(new EmployeeCreateRequest("Ada", "Batch"));
+        EmployeeResponse second = _employeeService.create(new EmployeeCreateRequest("Grace", "Batch"));
+
+        // Act
+        List<Future<EmployeeResponse>> results = runTogether(List.of(
+            () -> _groupCommitService.update(first.getId(), new EmployeeUpdateRequest("Ada", "Updated", first.getVersion())),
+            () -> _groupCommitService.update(second.getId(), new EmployeeUpdateRequest("Grace", "Updated", second.getVersion() + 5)),
+            () -> _groupCommitService.update(Integer.MAX_VALUE, new EmployeeUpdateRequest("Nobody", "Updated", 0)),
+            () -> _groupCommitService.create(new EmployeeCreateRequest("Alan", "Batch"))
+        ));
+
+        // Assert
+        Assertions.assertEquals("Updated", results.get(0).get().getLastName());
+        Assertions.assertEquals(first.getVersion() + 1, results.get(0).get().getVersion());
+        Assertions.assertEquals(EmployeeVersionConflictException.class, failure(results.get(1)).getClass());
+        Assertions.assertEquals(EmployeeNotFoundException.class, failure(results.get(2)).getClass());
+        Assertions.assertEquals("Alan", results.get(3).get().getFirstName());
+        Assertions.assertEquals("Updated", _employeeService.getById(first.getId()).get().getLastName());
+        Assertions.assertEquals("Batch", _employeeService.getById(second.getId()).get().getLastName());
+    }
+
+    @Test
+    public void given_WriteThatFailsToCommit_Then_OtherWritesInItsBatch_StillCommit() throws Exception {
+        // Arrange
+        String tooLong = "x".repeat(300);
+        double retriedBefore = _meterRegistry.get("employee.group.commit.retried.batches").counter().count();
+
+        // Act
+        List<Future<EmployeeResponse>> results = runTogether(List.of(
+            () -> _groupCommitService.create(new EmployeeCreateRequest("Edsger", "Retried")),
+            () -> _groupCommitService.create(new EmployeeCreateRequest(tooLong, "Retried")),
+            () -> _groupCommitService.create(new EmployeeCreateRequest("Donald", "Retried"))
+        ));
+
+        // Assert
+        Assertions.assertEquals("Edsger", results.get(0).get().getFirstName());
+        Assertions.assertTrue(failure(results.get(1)) instanceof DataAccessException);
+        Assertions.assertEquals("Donald", results.get(2).get().getFirstName());
+        Assertions.assertTrue(_employeeService.getById(results.get(0).get().getId()).isPresent());
+        Assertions.assertTrue(_employeeService.getById(results.get(2).get().getId()).isPresent());
+        Assertions.assertTrue(_meterRegistry.get("employee.group.commit.retried.batches").counter().count() > retriedBefore);
+    }
+
+    private DistributionSummary batchSize() {
+        return _meterRegistry.get("employee.group.commit.batch.size").summary();
+    }
+
+    private static List<Future<EmployeeResponse>> runTogether(List<Callable<EmployeeResponse>> writes) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(writes.size());
+        try {
+            return executor.invokeAll(writes);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<EmployeeResponse> getAll(List<Future<EmployeeResponse>> results) throws Exception {
+        List<EmployeeResponse> responses = new ArrayList<>();
+        for (Future<EmployeeResponse> result : results) {
+            responses.add(result.get());
+        }
+        return responses;
+    }
+
+    private static Throwable failure(Future<EmployeeResponse> result) throws InterruptedException {
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, result::get);
+        return e.getCause();
+    }
+}
@@ -0,0 +1,124 @@
+package scott.spring.webapisandbox.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import scott.spring.webapisandbox.repositories.EmployeeRepository;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeCreateRequest;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeUpdateRequest;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Reads started within the 300 ms window are read by one query, and with the cache off every
+// getById reaches the loader.
+@SpringBootTest(properties = {
+    "app.coalescing.enabled=true",
+    "app.coalescing.window-ms=300",
+    "app.coalescing.max-batch-size=8",
+    "spring.cache.type=none"
+})
+public class EmployeeLoaderTests {
+
+    @Autowired
+    private EmployeeLoader _employeeLoader;
+
+    @Autowired
+    private EmployeeService _employeeService;
+
+    @Autowired
+    private MeterRegistry _meterRegistry;
+
+    @Test
+    public void given_ConcurrentReads_Then_Load_SharesLookupsOfTheSameId_And_BatchesTheRest() throws Exception {
+        // Arrange
+        List<EmployeeResponse> employees = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            employees.add(_employeeService.create(new EmployeeCreateRequest("Coalesced" + i, "Read")));
+        }
+        double lookupsBefore = count("employee.loader.lookups");
+        double queriesBefore = count("employee.loader.queries");
+        double sharedBefore = count("employee.loader.shared.lookups");
+
+        // Act: a thread for each read, so none waits for another to finish.
+        ExecutorService readers = Executors.newCachedThreadPool();
+        List<CompletableFuture<Optional<EmployeeResponse>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 12; i++) {
+                Integer id = employees.get(i % 3).getId();
+                results.add(CompletableFuture.supplyAsync(() -> _employeeService.getById(id), readers));
+            }
+            results.add(CompletableFuture.supplyAsync(() -> _employeeLoader.load(Integer.MAX_VALUE), readers));
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+        } finally {
+            readers.shutdown();
+        }
+
+        // Assert
+        for (int i = 0; i < 12; i++) {
+            Assertions.assertEquals("Coalesced" + (i % 3), results.get(i).get().get().getFirstName());
+        }
+        Assertions.assertTrue(results.get(12).get().isEmpty());
+        Assertions.assertEquals(13, count("employee.loader.lookups") - lookupsBefore);
+        Assertions.assertTrue(count("employee.loader.shared.lookups") - sharedBefore > 0);
+        Assertions.assertTrue(count("employee.loader.queries") - queriesBefore < 4);
+        Assertions.assertTrue(_meterRegistry.get("employee.loader.batch.size").summary().max() > 1);
+    }
+
+    @Test
+    public void given_UpdateBetweenReads_Then_Load_ReturnsTheUpdatedEmployee() throws Exception {
+        // Arrange
+        EmployeeResponse created = _employeeService.create(new EmployeeCreateRequest("Fresh", "Read"));
+        Assertions.assertEquals("Read", _employeeLoader.load(created.getId()).get().getLastName());
+
+        // Act
+        _employeeService.update(created.getId(), new EmployeeUpdateRequest("Fresh", "Reread", created.getVersion()));
+
+        // Assert
+        EmployeeResponse loaded = _employeeLoader.load(created.getId()).get();
+        Assertions.assertEquals("Reread", loaded.getLastName());
+        Assertions.assertEquals(created.getVersion() + 1, loaded.getVersion());
+    }
+
+    @Test
+    public void given_BatchesWaitingForAQueryThread_Then_Shutdown_FailsTheirLookups() throws Exception {
+        // Arrange: one query thread, held by the first batch, so the second batch waits behind it.
+        EmployeeRepository repository = Mockito.mock(EmployeeRepository.class);
+        CountDownLatch querying = new CountDownLatch(1);
+        Mockito.when(repository.findResponseById(1)).thenAnswer(invocation -> {
+            querying.countDown();
+            new CountDownLatch(1).await();
+            return Optional.empty();
+        });
+        EmployeeLoader loader = new EmployeeLoader(
+            repository, new EmployeeShardRouter(repository, new String[0]), new SimpleMeterRegistry(), true, 8, 1, 1);
+        CompletableFuture<Optional<EmployeeResponse>> running = CompletableFuture.supplyAsync(() -> loader.load(1));
+        Assertions.assertTrue(querying.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Optional<EmployeeResponse>> waiting = CompletableFuture.supplyAsync(() -> loader.load(2));
+        Thread.sleep(200);
+
+        // Act
+        loader.shutdown();
+
+        // Assert
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof IllegalStateException, e.getCause().toString());
+        Assertions.assertThrows(ExecutionException.class, () -> running.get(5, TimeUnit.SECONDS));
+    }
+
+    private double count(String name) {
+        return _meterRegistry.get(name).counter().count();
+    }
+}
@@ -0,0 +1,193 @@
+package scott.spring.webapisandbox.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import scott.spring.webapisandbox.models.Employee;
+import scott.spring.webapisandbox.repositories.EmployeeRepository;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeCreateRequest;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Without the cache every getById here reaches the service.
+@SpringBootTest(properties = { "app.read-model.enabled=true", "spring.cache.type=none" })
+@AutoConfigureMockMvc
+public class EmployeeReadModelTests {
+
+    @Autowired
+    private MockMvc _mockMvc;
+
+    @Autowired
+    private EmployeeReadModel _readModel;
+
+    @Autowired
+    private EmployeeService _employeeService;
+
+    @Autowired
+    private EmployeeRepository _employeeRepository;
+
+    @Autowired
+    private EmployeeChangeCounter _changeCounter;
+
+    @Test
+    public void given_WritesThroughTheApi_Then_ReadModel_ServesThem_And_MatchesTheDatabase() throws Exception {
+        // Arrange
+        awaitLoaded();
+        MvcResult created = _mockMvc
+            .perform(post("/api/employee").contentType(MediaType.APPLICATION_JSON).content("{\"firstName\":\"Read\",\"lastName\":\"Model\"}"))
+            .andExpect(status().isOk())
+            .andReturn();
+        int id = JsonPath.read(created.getResponse().getContentAsString(), "$.id");
+
+        // Act
+        _mockMvc
+            .perform(put("/api/employee/" + id).contentType(MediaType.APPLICATION_JSON).content("{\"firstName\":\"Read\",\"lastName\":\"Column\",\"version\":0}"))
+            .andExpect(status().isOk());
+        Employee bypassed = _employeeRepository.save(new Employee(null, "Written", "Elsewhere"));
+
+        // Assert
+        EmployeeResponse updated = _readModel.getById(id);
+        Assertions.assertEquals("Column", updated.getLastName());
+        Assertions.assertEquals(1, updated.getVersion());
+
+        Assertions.assertNull(_readModel.getById(bypassed.getId()));
+        Assertions.assertEquals("Elsewhere", _employeeService.getById(bypassed.getId()).get().getLastName());
+        Assertions.assertNotNull(_readModel.getById(bypassed.getId()));
+
+        Assertions.assertEquals(describe(_employeeRepository.findAllResponses()), describe(_employeeService.getAll()));
+    }
+
+    @Test
+    public void given_OlderVersionArrivesLate_Then_PutAll_KeepsTheNewer_And_SharesNames() {
+        // Arrange
+        EmployeeReadModel readModel = new EmployeeReadModel(null, new SimpleMeterRegistry(), true);
+        readModel.put(new EmployeeResponse(5000, "Same", "Name", 2));
+        long bytesForOne = readModel.estimateBytes();
+
+        // Act
+        readModel.putAll(List.of(new EmployeeResponse(5000, "Stale", "Name", 1), new EmployeeResponse(5001, "Same", "Name", 0)));
+
+        // Assert
+        Assertions.assertEquals("Same", readModel.getById(5000).getFirstName());
+        Assertions.assertEquals(2, readModel.getById(5000).getVersion());
+        Assertions.assertNull(readModel.getById(4999));
+        Assertions.assertEquals(2, readModel.size());
+        Assertions.assertEquals(List.of(5000, 5001), readModel.getAll().stream().map(EmployeeResponse::getId).collect(Collectors.toList()));
+        Assertions.assertEquals(bytesForOne, readModel.estimateBytes());
+    }
+
+    @Test
+    public void given_WritesDuringGetAll_Then_EveryResponse_HasTheWritesItsETagCounts() throws Exception {
+        // Arrange: CBOR skips the JSON snapshot, so the list comes from the read model.
+        awaitLoaded();
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CompletableFuture<List<Map.Entry<Long, Set<Integer>>>> reads = CompletableFuture.supplyAsync(() -> {
+            List<Map.Entry<Long, Set<Integer>>> seen = new ArrayList<>();
+            try {
+                while (writing.get()) {
+                    MvcResult result = _mockMvc.perform(get("/api/employee").accept(MediaType.valueOf("application/cbor")))
+                        .andExpect(status().isOk())
+                        .andReturn();
+                    List<Map<String, Object>> employees = cbor.readValue(result.getResponse().getContentAsByteArray(), new TypeReference<>() { });
+                    Set<Integer> ids = employees.stream().map(employee -> (Integer) employee.get("id")).collect(Collectors.toSet());
+                    seen.add(Map.entry(changeCount(result.getResponse().getHeader(HttpHeaders.ETAG)), ids));
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return seen;
+        });
+
+        // Act: after each create returns, the counter has counted it.
+        List<Map.Entry<Long, Integer>> written = new ArrayList<>();
+        try {
+            for (int i = 0; i < 30; i++) {
+                MvcResult created = _mockMvc
+                    .perform(post("/api/employee").contentType(MediaType.APPLICATION_JSON).content("{\"firstName\":\"Counted\",\"lastName\":\"Write" + i + "\"}"))
+                    .andExpect(status().isOk())
+                    .andReturn();
+                int id = JsonPath.read(created.getResponse().getContentAsString(), "$.id");
+                written.add(Map.entry(changeCount(_changeCounter.getETag()), id));
+            }
+        } finally {
+            writing.set(false);
+        }
+
+        // Assert
+        List<Map.Entry<Long, Set<Integer>>> seen = reads.get(30, TimeUnit.SECONDS);
+        Assertions.assertFalse(seen.isEmpty());
+        for (Map.Entry<Long, Set<Integer>> read : seen) {
+            Set<Integer> missing = new HashSet<>();
+            for (Map.Entry<Long, Integer> write : written) {
+                if (write.getKey() <= read.getKey() && !read.getValue().contains(write.getValue())) {
+                    missing.add(write.getValue());
+                }
+            }
+            Assertions.assertTrue(missing.isEmpty(), "Change " + read.getKey() + " was served without " + missing);
+        }
+    }
+
+    @Test
+    public void given_ReadModelIsLoaded_Then_ConditionalGetById_IsAnsweredFromIt() throws Exception {
+        // Arrange: change the row behind the read model's back, so only the model still has version 0.
+        awaitLoaded();
+        EmployeeResponse created = _employeeService.create(new EmployeeCreateRequest("Conditional", "Read"));
+        Employee bypassed = _employeeRepository.findById(created.getId()).orElseThrow();
+        bypassed.setLastName("Elsewhere");
+        bypassed = _employeeRepository.save(bypassed);
+
+        try {
+            // Act / Assert
+            _mockMvc.perform(get("/api/employee/" + created.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isNotModified());
+        } finally {
+            _readModel.put(EmployeeResponse.FromEmployee(bypassed));
+        }
+    }
+
+    // Waits for the load started when the application became ready.
+    private void awaitLoaded() throws InterruptedException {
+        for (int i = 0; i < 100 && !_readModel.isLoaded(); i++) {
+            Thread.sleep(50);
+        }
+        Assertions.assertTrue(_readModel.isLoaded());
+    }
+
+    // The ETag is "<epoch>-<changes>", with a suffix for formats other than JSON.
+    private static long changeCount(String eTag) {
+        return Long.parseLong(eTag.replace("\"", "").split("-")[1]);
+    }
+
+    private static List<String> describe(List<EmployeeResponse> employees) {
+        return employees
+            .stream()
+            .map(employee -> employee.getId() + " " + employee.getFirstName() + " " + employee.getLastName() + " " + employee.getVersion())
+            .collect(Collectors.toList());
+    }
+}
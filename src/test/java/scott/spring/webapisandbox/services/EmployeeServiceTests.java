@@ -0,0 +1,150 @@
+package scott.spring.webapisandbox.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import scott.spring.webapisandbox.repositories.EmployeeRepository;
+import scott.spring.webapisandbox.webapi.models.request.EmployeeUpdateRequest;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static java.util.Optional.of;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static scott.spring.webapisandbox.config.CacheConfig.EMPLOYEE_CACHE;
+
+@SpringBootTest
+public class EmployeeServiceTests {
+
+    @Autowired
+    private EmployeeService _employeeService;
+
+    @Autowired
+    private CacheManager _cacheManager;
+
+    @MockBean
+    private EmployeeRepository _mockEmployeeRepository;
+
+    @BeforeEach
+    public void clearCache() {
+        _cacheManager.getCache(EMPLOYEE_CACHE).clear();
+    }
+
+    @Test
+    public void given_EmployeeExists_Then_RepeatedGetById_Hits_RepositoryOnce() {
+        // Arrange
+        when(_mockEmployeeRepository.findResponseById(1)).thenReturn(of(new EmployeeResponse(1, "TestFirst1", "TestLast1", 0)));
+        long hitsBefore = nativeCache().stats().hitCount();
+
+        // Act
+        Optional<EmployeeResponse> first = _employeeService.getById(1);
+        Optional<EmployeeResponse> second = _employeeService.getById(1);
+
+        // Assert
+        Assertions.assertTrue(first.isPresent());
+        Assertions.assertTrue(second.isPresent());
+        Assertions.assertEquals("TestFirst1", second.get().getFirstName());
+        verify(_mockEmployeeRepository, times(1)).findResponseById(1);
+        Assertions.assertEquals(hitsBefore + 1, nativeCache().stats().hitCount());
+    }
+
+    @Test
+    public void given_EmployeeDoesNotExist_Then_GetById_IsNotCached() {
+        // Arrange
+        when(_mockEmployeeRepository.findResponseById(2)).thenReturn(Optional.empty());
+
+        // Act
+        _employeeService.getById(2);
+        _employeeService.getById(2);
+
+        // Assert
+        verify(_mockEmployeeRepository, times(2)).findResponseById(2);
+    }
+
+    @Test
+    public void given_CachedEmployee_Then_Update_RefreshesCachedEntry() throws Exception {
+        // Arrange
+        when(_mockEmployeeRepository.findResponseById(3))
+            .thenReturn(of(new EmployeeResponse(3, "TestFirst3", "TestLast3", 0)))
+            .thenReturn(of(new EmployeeResponse(3, "TestFirst3Updated", "TestLast3Updated", 1)));
+        when(_mockEmployeeRepository.updateEmployee(3, null, "TestFirst3Updated", "TestLast3Updated")).thenReturn(1);
+        _employeeService.getById(3);
+
+        // Act
+        _employeeService.update(3, new EmployeeUpdateRequest("TestFirst3Updated", "TestLast3Updated"));
+        Optional<EmployeeResponse> result = _employeeService.getById(3);
+
+        // Assert
+        Assertions.assertTrue(result.isPresent());
+        Assertions.assertEquals("TestFirst3Updated", result.get().getFirstName());
+        Assertions.assertEquals("TestLast3Updated", result.get().getLastName());
+        verify(_mockEmployeeRepository, times(2)).findResponseById(3);
+    }
+
+    @Test
+    public void given_UpdateCommitsWhileAMissIsLoading_Then_TheMiss_DoesNotReplaceTheNewerCachedEntry() throws Exception {
+        // Arrange: the miss reads version 0, and the update to version 1 commits before it returns.
+        when(_mockEmployeeRepository.updateEmployee(4, 0, "TestFirst4Updated", "TestLast4Updated")).thenReturn(1);
+        when(_mockEmployeeRepository.findResponseById(4)).thenAnswer(invocation -> {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    _employeeService.update(4, new EmployeeUpdateRequest("TestFirst4Updated", "TestLast4Updated", 0));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }).join();
+            return of(new EmployeeResponse(4, "TestFirst4", "TestLast4", 0));
+        });
+
+        // Act
+        Optional<EmployeeResponse> missed = _employeeService.getById(4);
+        Optional<EmployeeResponse> result = _employeeService.getById(4);
+
+        // Assert
+        Assertions.assertEquals(0, missed.get().getVersion());
+        Assertions.assertEquals(1, result.get().getVersion());
+        Assertions.assertEquals("TestFirst4Updated", result.get().getFirstName());
+        verify(_mockEmployeeRepository, times(1)).findResponseById(4);
+    }
+
+    @Test
+    public void given_MatchesOnFirstAndLastName_Then_Search_MergesByMatchingName_WithoutDuplicates() {
+        // Arrange
+        EmployeeResponse annaSmith = new EmployeeResponse(1, "Anna", "Smith", 0);
+        EmployeeResponse anneAnders = new EmployeeResponse(2, "Anne", "Anders", 0);
+        EmployeeResponse bobAndrews = new EmployeeResponse(3, "Bob", "Andrews", 0);
+        when(_mockEmployeeRepository.findResponsesByFirstNamePrefix(Mockito.eq("an%"), Mockito.any())).thenReturn(List.of(annaSmith, anneAnders));
+        when(_mockEmployeeRepository.findResponsesByLastNamePrefix(Mockito.eq("an%"), Mockito.any())).thenReturn(List.of(anneAnders, bobAndrews));
+
+        // Act
+        List<EmployeeResponse> result = _employeeService.search(" AN ", 10);
+
+        // Assert
+        Assertions.assertEquals(List.of(2, 3, 1), result.stream().map(EmployeeResponse::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void given_LikeWildcardsInQuery_Then_Search_EscapesThem() {
+        // Act
+        _employeeService.search("50%_off", 10);
+
+        // Assert
+        verify(_mockEmployeeRepository).findResponsesByFirstNamePrefix(Mockito.eq("50!%!_off%"), Mockito.any());
+    }
+
+    private Cache<Object, Object> nativeCache() {
+        return ((CaffeineCache) _cacheManager.getCache(EMPLOYEE_CACHE)).getNativeCache();
+    }
+}
@@ -0,0 +1,112 @@
+package scott.spring.webapisandbox.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import scott.spring.webapisandbox.repositories.EmployeeRepository;
+import scott.spring.webapisandbox.webapi.models.response.EmployeeResponse;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+
+import static org.mockito.Mockito.when;
+
+public class EmployeeSnapshotServiceTests {
+
+    private EmployeeRepository _mockEmployeeRepository;
+    private EmployeeChangeCounter _changeCounter;
+    private EmployeeSnapshotService _snapshotService;
+
+    @BeforeEach
+    public void setUp() {
+        _mockEmployeeRepository = Mockito.mock(EmployeeRepository.class);
+        _changeCounter = new EmployeeChangeCounter();
+        _snapshotService = new EmployeeSnapshotService(
+            new EmployeeShardRouter(_mockEmployeeRepository, new String[0]), _changeCounter, new ObjectMapper());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        _snapshotService.shutdown();
+    }
+
+    @Test
+    public void given_NoSnapshotYet_Then_GetSnapshot_Returns_Null_And_BuildsOne() throws Exception {
+        // Arrange
+        when(_mockEmployeeRepository.findAllResponses()).thenReturn(List.of(new EmployeeResponse(1, "TestFirst", "TestLast", 0)));
+
+        // Act
+        EmployeeSnapshot first = _snapshotService.getSnapshot();
+        EmployeeSnapshot built = awaitSnapshot(snapshot -> true);
+
+        // Assert
+        Assertions.assertNull(first);
+        Assertions.assertEquals(_changeCounter.getETag(), built.getETag());
+        String json = new String(built.getJson(), StandardCharsets.UTF_8);
+        Assertions.assertTrue(json.contains("\"firstName\":\"TestFirst\""));
+        byte[] unzipped = new GZIPInputStream(new ByteArrayInputStream(built.getGzip())).readAllBytes();
+        Assertions.assertArrayEquals(built.getJson(), unzipped);
+    }
+
+    @Test
+    public void given_Change_Then_Snapshot_IsRebuilt_WithNewETag() throws Exception {
+        // Arrange
+        when(_mockEmployeeRepository.findAllResponses()).thenReturn(List.of());
+        _snapshotService.getSnapshot();
+        EmployeeSnapshot before = awaitSnapshot(snapshot -> true);
+        when(_mockEmployeeRepository.findAllResponses()).thenReturn(List.of(new EmployeeResponse(1, "TestFirst", "TestLast", 0)));
+
+        // Act
+        _changeCounter.recordChange();
+        EmployeeSnapshot after = awaitSnapshot(snapshot -> !snapshot.getETag().equals(before.getETag()));
+
+        // Assert
+        Assertions.assertEquals(_changeCounter.getETag(), after.getETag());
+        Assertions.assertTrue(new String(after.getJson(), StandardCharsets.UTF_8).contains("TestFirst"));
+    }
+
+    @Test
+    public void given_RebuildInProgress_Then_GetSnapshot_Returns_PreviousSnapshot_WithoutWaiting() throws Exception {
+        // Arrange
+        when(_mockEmployeeRepository.findAllResponses()).thenReturn(List.of());
+        _snapshotService.getSnapshot();
+        EmployeeSnapshot before = awaitSnapshot(snapshot -> true);
+        CountDownLatch rebuildStarted = new CountDownLatch(1);
+        CountDownLatch releaseRebuild = new CountDownLatch(1);
+        when(_mockEmployeeRepository.findAllResponses()).thenAnswer(invocation -> {
+            rebuildStarted.countDown();
+            releaseRebuild.await();
+            return List.of();
+        });
+
+        // Act
+        _changeCounter.recordChange();
+        Assertions.assertTrue(rebuildStarted.await(5, TimeUnit.SECONDS));
+        EmployeeSnapshot duringRebuild = _snapshotService.getSnapshot();
+        releaseRebuild.countDown();
+
+        // Assert
+        Assertions.assertSame(before, duringRebuild);
+        Assertions.assertNotSame(before, awaitSnapshot(snapshot -> snapshot != before));
+    }
+
+    private EmployeeSnapshot awaitSnapshot(Predicate<EmployeeSnapshot> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            EmployeeSnapshot snapshot = _snapshotService.getSnapshot();
+            if (snapshot != null && condition.test(snapshot)) {
+                return snapshot;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Snapshot was not rebuilt in time");
+    }
+}